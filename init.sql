@@ -1,3 +1,6 @@
+-- Baseline schema, identical to db/migration/V1__baseline_schema.sql. The application baselines
+-- this database at V1 on first start and applies the later migrations itself.
+
 -- Enable strict SQL mode
 SET SQL_MODE = "NO_AUTO_VALUE_ON_ZERO";
 START TRANSACTION;
@@ -34,6 +37,7 @@ CREATE TABLE IF NOT EXISTS `cars` (
   `color` varchar(50) DEFAULT NULL,
   `transmission` varchar(50) DEFAULT NULL,
   `seats` int DEFAULT NULL,
+  `fuel_type` varchar(50) DEFAULT NULL,
   PRIMARY KEY (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
@@ -79,7 +83,7 @@ CREATE TABLE IF NOT EXISTS `refresh_tokens` (
   `created_at` timestamp NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_token` (`token`),
-  KEY `idx_user_id` (`user_id`),
+  KEY `idx_refresh_tokens_user_id` (`user_id`),
   CONSTRAINT `fk_refresh_token_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
@@ -2,8 +2,10 @@ package com.carrental;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CarRentalApplication {
 	// The CarRentalApplication class is the main entry point of the Spring Boot application.
 	// It uses the @SpringBootApplication annotation to enable autoconfiguration and component scanning.
@@ -0,0 +1,13 @@
+package com.carrental.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches are defined in application.properties (spring.cache.*); setting
+ * spring.cache.type=none turns every @Cacheable into a pass-through.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
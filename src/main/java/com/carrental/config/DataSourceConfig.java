@@ -0,0 +1,80 @@
+package com.carrental.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Connection pools for the primary database and an optional read replica. Read-only transactions
+ * are sent to the replica, everything else (writes, and statements run outside a transaction such
+ * as migrations and startup checks) to the primary. Without {@code app.datasource.replica.url}
+ * there is no replica pool and every connection comes from the primary.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Value("${app.datasource.replica.url:}")
+    private String replicaUrl;
+
+    @Value("${app.datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${app.datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${app.datasource.replica.maximum-pool-size:10}")
+    private int replicaMaximumPoolSize;
+
+    @Value("${app.datasource.replica.connection-timeout:5s}")
+    private Duration replicaConnectionTimeout;
+
+    // Still bound to spring.datasource.hikari.*, as the pool Spring Boot would have created
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnExpression("!'${app.datasource.replica.url:}'.isBlank()")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Qualifier("primaryDataSource") HikariDataSource primaryDataSource) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(replicaUrl);
+        dataSource.setUsername(replicaUsername);
+        dataSource.setPassword(replicaPassword);
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        // Same driver settings as the primary; read-only exports depend on useCursorFetch
+        dataSource.setDataSourceProperties(primaryDataSource.getDataSourceProperties());
+        dataSource.setMaximumPoolSize(replicaMaximumPoolSize);
+        dataSource.setConnectionTimeout(replicaConnectionTimeout.toMillis());
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") Optional<HikariDataSource> replicaDataSource) {
+        ReadReplicaRoutingDataSource routingDataSource =
+                new ReadReplicaRoutingDataSource(primaryDataSource, replicaDataSource.orElse(null));
+        routingDataSource.afterPropertiesSet();
+        // The transaction manager takes its connection before the transaction is marked read-only;
+        // the proxy holds the pool lookup back until the first statement, when the flag is set
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,85 @@
+package com.carrental.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache regions, held in Caffeine through JCache. Only {@code Car} and
+ * {@code User} are cached; every region is declared here with its own bounds, and Hibernate
+ * refuses to start if an entity asks for a region that is missing.
+ */
+@Configuration
+public class EntityCacheConfig {
+
+    public static final String CARS = "cars";
+    public static final String USERS = "users";
+    public static final String USERS_BY_EMAIL = "users-by-email";
+
+    @Value("${app.entity-cache.cars.max-entries:5000}")
+    private long carsMaxEntries;
+
+    @Value("${app.entity-cache.cars.ttl:10m}")
+    private Duration carsTtl;
+
+    @Value("${app.entity-cache.users.max-entries:10000}")
+    private long usersMaxEntries;
+
+    // Other nodes only see credential, role and status changes once their entry expires
+    @Value("${app.entity-cache.users.ttl:60s}")
+    private Duration usersTtl;
+
+    @Value("${app.entity-cache.queries.max-entries:1000}")
+    private long queriesMaxEntries;
+
+    @Value("${app.entity-cache.queries.ttl:5m}")
+    private Duration queriesTtl;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager() {
+        // A manager of its own per application context; the provider would otherwise share one per URI
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("carrental-entity-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(CARS, region(carsMaxEntries, carsTtl));
+        cacheManager.createCache(USERS, region(usersMaxEntries, usersTtl));
+        cacheManager.createCache(USERS_BY_EMAIL, region(usersMaxEntries, usersTtl));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                region(queriesMaxEntries, queriesTtl));
+        // Update timestamps must outlive every cached query result, so this region is never evicted
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStoreByValue(false);
+        timestamps.setStatisticsEnabled(true);
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxEntries, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        // Hibernate stores immutable disassembled state, so copying on every read buys nothing
+        configuration.setStoreByValue(false);
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
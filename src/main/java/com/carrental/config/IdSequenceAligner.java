@@ -0,0 +1,62 @@
+package com.carrental.config;
+
+import com.carrental.model.PooledIdGenerator;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves each pooled id segment past the ids already in its table before the first insert.
+ * Rows written through AUTO_INCREMENT (init.sql seed data, older releases) would otherwise
+ * collide with the first blocks the generator hands out.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class IdSequenceAligner {
+
+    // Segment value of each pooled generator; it is also the table the ids land in
+    static final List<String> SEGMENTS = List.of("users", "cars", "bookings", "payments", "refresh_tokens");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.id.allocation-size:" + PooledIdGenerator.DEFAULT_ALLOCATION_SIZE + "}")
+    private int allocationSize;
+
+    @PostConstruct
+    public void align() {
+        SEGMENTS.forEach(this::align);
+    }
+
+    private void align(String table) {
+        long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        // The pooled optimizer hands out (stored - allocationSize, stored], so stay one block clear
+        long floor = maxId + allocationSize + 1;
+        int updated = jdbcTemplate.update("UPDATE " + PooledIdGenerator.TABLE
+                + " SET next_val = ? WHERE sequence_name = ? AND next_val < ?", floor, table, floor);
+        if (updated > 0) {
+            log.info("Moved id segment {} to {}", table, floor);
+            return;
+        }
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + PooledIdGenerator.TABLE
+                + " WHERE sequence_name = ?", Integer.class, table);
+        if (rows == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO " + PooledIdGenerator.TABLE
+                        + " (sequence_name, next_val) VALUES (?, ?)", table, floor);
+                log.info("Created id segment {} at {}", table, floor);
+            } catch (DuplicateKeyException e) {
+                // Another node created it first; run the update again against its row
+                align(table);
+            }
+        }
+    }
+}
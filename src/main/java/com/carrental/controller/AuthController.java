@@ -9,6 +9,7 @@ import com.carrental.dto.response.MessageResponse;
 import com.carrental.dto.response.UserResponse;
 import com.carrental.model.User;
 import com.carrental.security.jwt.JwtUtils;
+import com.carrental.service.RefreshTokenService;
 import com.carrental.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -16,6 +17,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -50,6 +52,7 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final UserService userService;
     private final JwtUtils jwtUtils;
+    private final RefreshTokenService refreshTokenService;
 
     @PostMapping("/login")
     @Operation(summary = "Authenticate user and generate JWT token")
@@ -59,9 +62,9 @@ public class AuthController {
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = jwtUtils.generateJwtToken(authentication);
-        String refreshToken = jwtUtils.generateRefreshToken(loginRequest.getEmail());
 
         User userDetails = (User) authentication.getPrincipal();
+        String refreshToken = refreshTokenService.issue(userDetails);
 
         return ResponseEntity.ok(JwtResponse.builder()
                 .token(jwt)
@@ -85,19 +88,22 @@ public class AuthController {
     @PostMapping("/refresh-token")
     @Operation(summary = "Refresh JWT token")
     public ResponseEntity<JwtResponse> refreshToken(@RequestParam String refreshToken) {
-        if (!jwtUtils.validateJwtToken(refreshToken)) {
-            return ResponseEntity.badRequest().body(null);
-        }
+        return ResponseEntity.ok(refreshTokenService.rotate(refreshToken));
+    }
 
-        String username = jwtUtils.getUserNameFromJwtToken(refreshToken);
-        String newToken = jwtUtils.generateTokenFromUsername(username);
-        String newRefreshToken = jwtUtils.generateRefreshToken(username);
+    @PostMapping("/logout")
+    @Operation(summary = "Revoke a refresh token")
+    public ResponseEntity<MessageResponse> logout(@RequestParam String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
+        return ResponseEntity.ok(new MessageResponse("Logged out successfully"));
+    }
 
-        return ResponseEntity.ok(JwtResponse.builder()
-                .token(newToken)
-                .refreshToken(newRefreshToken)
-                .type("Bearer")
-                .build());
+    @PostMapping("/logout-all")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Revoke every token issued to the current user")
+    public ResponseEntity<MessageResponse> logoutAll(Authentication authentication) {
+        userService.revokeAllSessions(authentication.getName());
+        return ResponseEntity.ok(new MessageResponse("Logged out from all sessions"));
     }
 
     @PostMapping("/password-reset-request")
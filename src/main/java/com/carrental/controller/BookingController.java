@@ -2,18 +2,29 @@ package com.carrental.controller;
 
 import com.carrental.dto.request.BookingRequest;
 import com.carrental.dto.response.BookingResponse;
+import com.carrental.dto.response.CursorPage;
 import com.carrental.model.BookingStatus;
 import com.carrental.service.BookingService;
+import com.carrental.service.CollectionVersions;
+import com.carrental.service.ExportFormat;
+import com.carrental.service.ResourceVersion;
+import com.carrental.service.StreamingExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -24,26 +35,77 @@ import java.util.List;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final CollectionVersions collectionVersions;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get all bookings (Admin only)")
-    public ResponseEntity<List<BookingResponse>> getAllBookings() {
-        List<BookingResponse> bookings = bookingService.getAllBookings();
+    @Operation(summary = "Get all bookings, one keyset page at a time (Admin only; sort: id, startDate)")
+    public ResponseEntity<CursorPage<BookingResponse>> getAllBookings(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            WebRequest request) {
+        ResourceVersion version = collectionVersions.current(CollectionVersions.BOOKINGS);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+        CursorPage<BookingResponse> bookings = bookingService.getAllBookings(cursor, size, sort, direction);
         return ResponseEntity.ok(bookings);
     }
 
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream every booking as one JSON array (Admin only)")
+    public ResponseEntity<StreamingResponseBody> exportBookings() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(bookingService.exportBookings(ExportFormat.JSON_ARRAY));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream every booking as newline-delimited JSON (Admin only)")
+    public ResponseEntity<StreamingResponseBody> exportBookingsAsNdjson() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(bookingService.exportBookings(ExportFormat.NDJSON));
+    }
+
+    @GetMapping("/export.csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream bookings as CSV, filtered by start date and status; gzip when the client accepts it (Admin only)")
+    public ResponseEntity<StreamingResponseBody> exportBookingsCsv(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) BookingStatus status,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = StreamingExporter.acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = bookingService.exportBookingsCsv(from, to, status, gzip);
+        return ResponseEntity.ok()
+                .headers(StreamingExporter.csvHeaders("bookings.csv", gzip))
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or @bookingSecurity.isOwner(authentication, #id)")
     @Operation(summary = "Get booking by ID (Admin or owner)")
-    public ResponseEntity<BookingResponse> getBookingById(@PathVariable Long id) {
+    public ResponseEntity<BookingResponse> getBookingById(@PathVariable Long id, WebRequest request) {
+        ResourceVersion version = bookingService.getBookingVersion(id);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
         BookingResponse booking = bookingService.getBookingById(id);
         return ResponseEntity.ok(booking);
     }
 
     @GetMapping("/my-bookings")
     @Operation(summary = "Get current user's bookings")
-    public ResponseEntity<List<BookingResponse>> getMyBookings(Authentication authentication) {
+    public ResponseEntity<List<BookingResponse>> getMyBookings(Authentication authentication, WebRequest request) {
+        ResourceVersion version = collectionVersions.currentForUser(authentication.getName());
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
         List<BookingResponse> bookings = bookingService.getBookingsByUser(authentication.getName());
         return ResponseEntity.ok(bookings);
     }
@@ -51,7 +113,11 @@ public class BookingController {
     @GetMapping("/car/{carId}")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Get bookings by car ID (Admin only)")
-    public ResponseEntity<List<BookingResponse>> getBookingsByCar(@PathVariable Long carId) {
+    public ResponseEntity<List<BookingResponse>> getBookingsByCar(@PathVariable Long carId, WebRequest request) {
+        ResourceVersion version = collectionVersions.current(CollectionVersions.BOOKINGS);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
         List<BookingResponse> bookings = bookingService.getBookingsByCar(carId);
         return ResponseEntity.ok(bookings);
     }
@@ -1,20 +1,35 @@
 package com.carrental.controller;
 
 import com.carrental.dto.request.CarRequest;
+import com.carrental.dto.response.CarImportResponse;
 import com.carrental.dto.response.CarResponse;
+import com.carrental.dto.response.CarSearchResponse;
+import com.carrental.dto.response.CursorPage;
+import com.carrental.service.CarImportService;
 import com.carrental.service.CarService;
+import com.carrental.service.CollectionVersions;
+import com.carrental.service.ResourceVersion;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -24,40 +39,103 @@ import java.util.List;
 public class CarController {
 
     private final CarService carService;
+    private final CarImportService carImportService;
+    private final CollectionVersions collectionVersions;
 
     @GetMapping
-    @Operation(summary = "Get all cars")
-    public ResponseEntity<List<CarResponse>> getAllCars() {
-        List<CarResponse> cars = carService.getAllCars();
+    @Operation(summary = "Get all cars, one keyset page at a time (sort: id, pricePerDay)")
+    public ResponseEntity<CursorPage<CarResponse>> getAllCars(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            WebRequest request) {
+        ResourceVersion version = collectionVersions.current(CollectionVersions.CARS);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+        CursorPage<CarResponse> cars = carService.getAllCars(cursor, size, sort, direction);
         return ResponseEntity.ok(cars);
     }
 
     @GetMapping("/available")
     @Operation(summary = "Get all available cars")
-    public ResponseEntity<List<CarResponse>> getAvailableCars() {
+    public ResponseEntity<List<CarResponse>> getAvailableCars(WebRequest request) {
+        ResourceVersion version = collectionVersions.current(CollectionVersions.CARS);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
         List<CarResponse> cars = carService.getAvailableCars();
         return ResponseEntity.ok(cars);
     }
 
+    @GetMapping(value = "/available", params = {"start", "end"})
+    @Operation(summary = "Find cars free for the whole date range, with optional search filters")
+    public ResponseEntity<Page<CarResponse>> getCarsAvailableBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam(required = false) String make,
+            @RequestParam(required = false) String model,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @ParameterObject @PageableDefault(size = 20, sort = "id") Pageable pageable,
+            WebRequest request) {
+        ResourceVersion version = collectionVersions.current(CollectionVersions.CARS, CollectionVersions.BOOKINGS);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+        Page<CarResponse> cars = carService.findCarsAvailableBetween(start, end, make, model, minPrice, maxPrice, pageable);
+        return ResponseEntity.ok(cars);
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get car by ID")
-    public ResponseEntity<CarResponse> getCarById(@PathVariable Long id) {
+    public ResponseEntity<CarResponse> getCarById(@PathVariable Long id, WebRequest request) {
+        ResourceVersion version = carService.getCarVersion(id);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
         CarResponse car = carService.getCarById(id);
         return ResponseEntity.ok(car);
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search cars by criteria")
+    @Operation(summary = "Search cars by criteria",
+            description = "q matches substrings of make, model, color, transmission and fuel type; results are ranked by relevance")
     public ResponseEntity<List<CarResponse>> searchCars(
+            @RequestParam(required = false) String q,
             @RequestParam(required = false) String make,
             @RequestParam(required = false) String model,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
-            @RequestParam(required = false) Boolean available) {
-        List<CarResponse> cars = carService.searchCars(make, model, minPrice, maxPrice, available);
+            @RequestParam(required = false) Boolean available,
+            WebRequest request) {
+        ResourceVersion version = collectionVersions.current(CollectionVersions.CARS);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+        List<CarResponse> cars = carService.searchCars(q, make, model, minPrice, maxPrice, available);
         return ResponseEntity.ok(cars);
     }
 
+    @GetMapping(value = "/search", params = "facets=true")
+    @Operation(summary = "Search cars and count matches per make, transmission, fuel type, seats and price bucket")
+    public ResponseEntity<CarSearchResponse> searchCarsWithFacets(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String make,
+            @RequestParam(required = false) String model,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean available,
+            WebRequest request) {
+        ResourceVersion version = collectionVersions.current(CollectionVersions.CARS);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+        CarSearchResponse result = carService.searchCarsWithFacets(q, make, model, minPrice, maxPrice, available);
+        return ResponseEntity.ok(result);
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Create a new car (Admin only)", security = @SecurityRequirement(name = "bearerAuth"))
@@ -66,6 +144,26 @@ public class CarController {
         return ResponseEntity.ok(car);
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Bulk import cars, one JSON CarRequest per line (Admin only)",
+            description = "Invalid rows are reported by line number; valid rows are inserted regardless",
+            security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<CarImportResponse> importCarsFromNdjson(InputStream body) throws IOException {
+        CarImportResponse result = carImportService.importNdjson(body);
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Bulk import cars from CSV with a header row of CarRequest field names (Admin only)",
+            description = "Invalid rows are reported by line number; valid rows are inserted regardless",
+            security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<CarImportResponse> importCarsFromCsv(InputStream body) throws IOException {
+        CarImportResponse result = carImportService.importCsv(body);
+        return ResponseEntity.ok(result);
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Update car (Admin only)", security = @SecurityRequirement(name = "bearerAuth"))
@@ -1,19 +1,22 @@
 package com.carrental.controller;
 
+import com.carrental.service.FileResponseWriter;
 import com.carrental.service.FileStorageService;
+import com.carrental.service.ImageVariant;
+import com.carrental.service.ImageVariantService;
+import com.carrental.service.StoredFile;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import jakarta.servlet.http.HttpServletRequest;
 import java.io.IOException;
 
 @RestController
@@ -23,28 +26,17 @@ import java.io.IOException;
 public class FileController {
 
     private final FileStorageService fileStorageService;
+    private final ImageVariantService imageVariantService;
+    private final FileResponseWriter fileResponseWriter;
 
     @GetMapping("/{fileName:.+}")
-    @Operation(summary = "Download file")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String fileName, HttpServletRequest request) {
-        Resource resource = fileStorageService.loadFileAsResource(fileName);
-
-        // Try to determine file's content type
-        String contentType = null;
-        try {
-            contentType = request.getServletContext().getMimeType(resource.getFile().getAbsolutePath());
-        } catch (IOException ex) {
-            // Logger would be used here in a real application
-        }
-
-        // Fallback to the default content type if type could not be determined
-        if (contentType == null) {
-            contentType = "application/octet-stream";
-        }
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-                .body(resource);
+    @Operation(summary = "Download file, or with ?size=thumb|card|full a resized copy of an image; "
+            + "supports conditional and single byte-range requests")
+    public void downloadFile(@PathVariable String fileName, @RequestParam(required = false) String size,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StoredFile file = size == null
+                ? fileStorageService.loadFile(fileName)
+                : imageVariantService.resolve(fileName, ImageVariant.fromParameter(size));
+        fileResponseWriter.write(file, new ServletWebRequest(request, response));
     }
 }
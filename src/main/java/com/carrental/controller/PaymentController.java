@@ -1,18 +1,29 @@
 package com.carrental.controller;
 
 import com.carrental.dto.request.PaymentRequest;
+import com.carrental.dto.response.CursorPage;
 import com.carrental.dto.response.PaymentResponse;
+import com.carrental.model.PaymentStatus;
+import com.carrental.service.CollectionVersions;
+import com.carrental.service.ExportFormat;
 import com.carrental.service.PaymentService;
+import com.carrental.service.ResourceVersion;
+import com.carrental.service.StreamingExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/payments")
@@ -22,19 +33,66 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final CollectionVersions collectionVersions;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get all payments (Admin only)")
-    public ResponseEntity<List<PaymentResponse>> getAllPayments() {
-        List<PaymentResponse> payments = paymentService.getAllPayments();
+    @Operation(summary = "Get all payments, one keyset page at a time (Admin only; sort: id, paymentDate)")
+    public ResponseEntity<CursorPage<PaymentResponse>> getAllPayments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            WebRequest request) {
+        ResourceVersion version = collectionVersions.current(CollectionVersions.PAYMENTS);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
+        CursorPage<PaymentResponse> payments = paymentService.getAllPayments(cursor, size, sort, direction);
         return ResponseEntity.ok(payments);
     }
 
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream every payment as one JSON array (Admin only)")
+    public ResponseEntity<StreamingResponseBody> exportPayments() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(paymentService.exportPayments(ExportFormat.JSON_ARRAY));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream every payment as newline-delimited JSON (Admin only)")
+    public ResponseEntity<StreamingResponseBody> exportPaymentsAsNdjson() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(paymentService.exportPayments(ExportFormat.NDJSON));
+    }
+
+    @GetMapping("/export.csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream payments as CSV, filtered by payment date and status; gzip when the client accepts it (Admin only)")
+    public ResponseEntity<StreamingResponseBody> exportPaymentsCsv(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) PaymentStatus status,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = StreamingExporter.acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = paymentService.exportPaymentsCsv(from, to, status, gzip);
+        return ResponseEntity.ok()
+                .headers(StreamingExporter.csvHeaders("payments.csv", gzip))
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or @paymentSecurity.isOwner(authentication, #id)")
     @Operation(summary = "Get payment by ID (Admin or owner)")
-    public ResponseEntity<PaymentResponse> getPaymentById(@PathVariable Long id) {
+    public ResponseEntity<PaymentResponse> getPaymentById(@PathVariable Long id, WebRequest request) {
+        ResourceVersion version = paymentService.getPaymentVersion(id);
+        if (request.checkNotModified(version.etag(), version.lastModified())) {
+            return null;
+        }
         PaymentResponse payment = paymentService.getPaymentById(id);
         return ResponseEntity.ok(payment);
     }
@@ -1,8 +1,10 @@
 package com.carrental.controller;
 
 import com.carrental.dto.request.SignupRequest;
+import com.carrental.dto.response.CursorPage;
 import com.carrental.dto.response.MessageResponse;
 import com.carrental.dto.response.UserResponse;
+import com.carrental.service.ExportFormat;
 import com.carrental.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -16,8 +18,8 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -32,12 +34,34 @@ public class UserController {
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Get all users (Admin only)")
-    public ResponseEntity<List<UserResponse>> getAllUsers() {
-        List<UserResponse> users = userService.getAllUsers();
+    @Operation(summary = "Get all users, one keyset page at a time (Admin only; sort: id, name)")
+    public ResponseEntity<CursorPage<UserResponse>> getAllUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction) {
+        CursorPage<UserResponse> users = userService.getAllUsers(cursor, size, sort, direction);
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream every user as one JSON array (Admin only)")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(userService.exportUsers(ExportFormat.JSON_ARRAY));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Stream every user as newline-delimited JSON (Admin only)")
+    public ResponseEntity<StreamingResponseBody> exportUsersAsNdjson() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(userService.exportUsers(ExportFormat.NDJSON));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or @userSecurity.isUser(authentication, #id)")
     @Operation(summary = "Get user by ID (Admin or self)")
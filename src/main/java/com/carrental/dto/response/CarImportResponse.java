@@ -0,0 +1,23 @@
+package com.carrental.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CarImportResponse {
+    private int imported;
+    private int failed;
+
+    // One entry per rejected row; line is the 1-based line the row starts on
+    private List<RowError> errors;
+
+    public record RowError(long line, String message) {
+    }
+}
@@ -1,16 +1,13 @@
 package com.carrental.dto.response;
 
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
 import java.math.BigDecimal;
 
-@Data
+// Immutable, since one instance is shared by the catalog caches, the search index and every reader
+@Value
 @Builder
-@AllArgsConstructor
-@NoArgsConstructor
 public class CarResponse {
     private Long id;
     private String make;
@@ -0,0 +1,16 @@
+package com.carrental.dto.response;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+@Value
+@Builder
+public class CarSearchResponse {
+    private List<CarResponse> cars;
+
+    // facet name -> value -> number of matching cars; null unless facets were requested
+    private Map<String, Map<String, Long>> facets;
+}
@@ -0,0 +1,16 @@
+package com.carrental.dto.response;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    // Opaque token to pass as ?cursor= for the following page; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,33 @@
+package com.carrental.event;
+
+import com.carrental.model.Booking;
+import com.carrental.model.BookingStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Published whenever a booking is created, changes status or is deleted.
+ * Listeners that keep derived state (availability, caches) react after commit.
+ */
+public record BookingChangedEvent(
+        Long bookingId,
+        Long carId,
+        LocalDate startDate,
+        LocalDate endDate,
+        BookingStatus status,
+        boolean deleted) {
+
+    public static BookingChangedEvent of(Booking booking) {
+        return new BookingChangedEvent(booking.getId(), booking.getCar().getId(),
+                booking.getStartDate(), booking.getEndDate(), booking.getStatus(), false);
+    }
+
+    public static BookingChangedEvent deleted(Booking booking) {
+        return new BookingChangedEvent(booking.getId(), booking.getCar().getId(),
+                booking.getStartDate(), booking.getEndDate(), booking.getStatus(), true);
+    }
+
+    public boolean occupiesCar() {
+        return !deleted && status != BookingStatus.CANCELLED;
+    }
+}
@@ -0,0 +1,7 @@
+package com.carrental.event;
+
+/**
+ * Published when a car is created, updated, deleted, gets a new image or has its availability flipped.
+ */
+public record CarCatalogChangedEvent(Long carId) {
+}
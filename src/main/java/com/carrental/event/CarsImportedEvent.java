@@ -0,0 +1,9 @@
+package com.carrental.event;
+
+import java.util.List;
+
+/**
+ * Published once per committed bulk-import batch, instead of one {@link CarCatalogChangedEvent} per car.
+ */
+public record CarsImportedEvent(List<Long> carIds) {
+}
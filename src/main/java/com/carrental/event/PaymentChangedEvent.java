@@ -0,0 +1,7 @@
+package com.carrental.event;
+
+/**
+ * Published whenever a payment is recorded or refunded.
+ */
+public record PaymentChangedEvent(Long paymentId, Long bookingId) {
+}
@@ -0,0 +1,7 @@
+package com.carrental.event;
+
+/**
+ * Published when a user's credentials, role or account status change, or the user is deleted.
+ */
+public record UserSecurityChangedEvent(Long userId) {
+}
@@ -0,0 +1,12 @@
+package com.carrental.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNAUTHORIZED)
+public class TokenRefreshException extends RuntimeException {
+
+    public TokenRefreshException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,52 @@
+package com.carrental.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.TableGenerator;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "refresh_tokens")
+@Cacheable(false)
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(generator = "refresh_token_id")
+    @GenericGenerator(name = "refresh_token_id", type = PooledIdGenerator.class,
+            parameters = @Parameter(name = TableGenerator.SEGMENT_VALUE_PARAM, value = "refresh_tokens"))
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    // SHA-256 digest of the issued token; the token itself is never stored
+    @Column(name = "token", nullable = false, unique = true)
+    private String tokenHash;
+
+    @Column(nullable = false)
+    private LocalDateTime expiryDate;
+
+    private LocalDateTime createdAt;
+
+    // Set when the token is rotated or revoked; presenting it again is treated as reuse
+    private LocalDateTime revokedAt;
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = LocalDateTime.now();
+    }
+}
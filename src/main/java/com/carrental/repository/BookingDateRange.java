@@ -0,0 +1,10 @@
+package com.carrental.repository;
+
+import java.time.LocalDate;
+
+public interface BookingDateRange {
+    Long getId();
+    Long getCarId();
+    LocalDate getStartDate();
+    LocalDate getEndDate();
+}
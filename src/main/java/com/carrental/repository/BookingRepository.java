@@ -4,27 +4,75 @@ import com.carrental.model.Booking;
 import com.carrental.model.BookingStatus;
 import com.carrental.model.Car;
 import com.carrental.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookingRepository extends JpaRepository<Booking, Long> {
+public interface BookingRepository extends JpaRepository<Booking, Long>, JpaSpecificationExecutor<Booking> {
+    @EntityGraph(attributePaths = {"user", "car"})
+    Optional<Booking> findWithUserAndCarById(Long id);
+
+    // Inner join on purpose: the derived query outer-joins users, which pins bookings as the driving table
+    @Query("SELECT b FROM Booking b JOIN FETCH b.user u JOIN FETCH b.car WHERE u.email = :email")
+    List<Booking> findByUserEmail(@Param("email") String email);
+
+    @EntityGraph(attributePaths = {"user", "car"})
+    List<Booking> findByCarId(Long carId);
+
+    // Forward-only cursor for exports; MySQL needs useCursorFetch=true for the fetch size to apply.
+    // Outer joins keep bookings as the driving table, so rows stream in primary key order unsorted
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT b FROM Booking b LEFT JOIN FETCH b.user LEFT JOIN FETCH b.car ORDER BY b.id")
+    Stream<Booking> streamAllForExport();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT b FROM Booking b LEFT JOIN FETCH b.user LEFT JOIN FETCH b.car WHERE " +
+            "(:from IS NULL OR b.startDate >= :from) AND (:to IS NULL OR b.startDate <= :to) AND " +
+            "(:status IS NULL OR b.status = :status) ORDER BY b.id")
+    Stream<Booking> streamForExport(
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to,
+            @Param("status") BookingStatus status);
+
     List<Booking> findByUser(User user);
     List<Booking> findByCar(Car car);
     List<Booking> findByStatus(BookingStatus status);
+    boolean existsByIdAndUserEmail(Long id, String email);
 
-    @Query("SELECT b FROM Booking b WHERE b.car.id = :carId AND b.status != 'CANCELLED' AND " +
-            "((b.startDate BETWEEN :startDate AND :endDate) OR " +
-            "(b.endDate BETWEEN :startDate AND :endDate) OR " +
-            "(:startDate BETWEEN b.startDate AND b.endDate) OR " +
-            "(:endDate BETWEEN b.startDate AND b.endDate))")
-    List<Booking> findOverlappingBookings(
+    @Query("SELECT CASE WHEN COUNT(b) > 0 THEN true ELSE false END FROM Booking b " +
+            "WHERE b.car.id = :carId AND b.status != 'CANCELLED' AND " +
+            "b.startDate <= :endDate AND b.endDate >= :startDate")
+    boolean existsOverlappingBooking(
             @Param("carId") Long carId,
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT b.id AS id, b.car.id AS carId, b.startDate AS startDate, b.endDate AS endDate " +
+            "FROM Booking b WHERE b.status != 'CANCELLED' AND b.endDate >= :from")
+    List<BookingDateRange> findActiveDateRanges(@Param("from") LocalDate from);
+
+    @Query("SELECT b.version AS version, b.updatedAt AS updatedAt, c.version AS carVersion, c.updatedAt AS carUpdatedAt " +
+            "FROM Booking b JOIN b.car c WHERE b.id = :id")
+    Optional<BookingVersion> findVersionById(@Param("id") Long id);
+
+    // One user's bookings only, found through the user_id index
+    @Query("SELECT COUNT(b) AS count, MAX(b.id) AS maxId, SUM(b.version) AS versionSum " +
+            "FROM Booking b JOIN b.user u WHERE u.email = :email")
+    CollectionVersion findCollectionVersionByUserEmail(@Param("email") String email);
 }
@@ -0,0 +1,9 @@
+package com.carrental.repository;
+
+import java.time.LocalDateTime;
+
+// Booking responses embed the car, so a car edit must change the booking's validator too
+public interface BookingVersion extends EntityVersion {
+    Long getCarVersion();
+    LocalDateTime getCarUpdatedAt();
+}
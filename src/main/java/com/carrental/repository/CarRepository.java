@@ -1,31 +1,54 @@
 package com.carrental.repository;
 
 import com.carrental.model.Car;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface CarRepository extends JpaRepository<Car, Long> {
+public interface CarRepository extends JpaRepository<Car, Long>, JpaSpecificationExecutor<Car> {
+    // Query cache keeps the id list; the rows themselves come from the cars entity region
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Car> findByAvailableTrue();
+
     List<Car> findByMakeContainingIgnoreCase(String make);
     List<Car> findByModelContainingIgnoreCase(String model);
     List<Car> findByPricePerDayBetween(BigDecimal min, BigDecimal max);
 
-    @Query("SELECT c FROM Car c WHERE " +
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Car c WHERE c.id = :id")
+    Optional<Car> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT c.version AS version, c.updatedAt AS updatedAt FROM Car c WHERE c.id = :id")
+    Optional<EntityVersion> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT c FROM Car c WHERE c.available = true AND " +
             "(:make IS NULL OR LOWER(c.make) LIKE LOWER(CONCAT('%', :make, '%'))) AND " +
             "(:model IS NULL OR LOWER(c.model) LIKE LOWER(CONCAT('%', :model, '%'))) AND " +
             "(:minPrice IS NULL OR c.pricePerDay >= :minPrice) AND " +
             "(:maxPrice IS NULL OR c.pricePerDay <= :maxPrice) AND " +
-            "(:available IS NULL OR c.available = :available)")
-    List<Car> searchCars(
+            "NOT EXISTS (SELECT b.id FROM Booking b WHERE b.car = c AND b.status != 'CANCELLED' AND " +
+            "b.startDate <= :endDate AND b.endDate >= :startDate)")
+    Page<Car> findAvailableBetween(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
             @Param("make") String make,
             @Param("model") String model,
             @Param("minPrice") BigDecimal minPrice,
             @Param("maxPrice") BigDecimal maxPrice,
-            @Param("available") Boolean available);
+            Pageable pageable);
 }
@@ -0,0 +1,19 @@
+package com.carrental.repository;
+
+import com.carrental.model.CollectionCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface CollectionCounterRepository extends JpaRepository<CollectionCounter, String> {
+
+    // Joins the writing transaction; flushes first, so the counter's row lock is the last one it takes
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CollectionCounter c SET c.version = c.version + 1 WHERE c.name = :name")
+    int increment(@Param("name") String name);
+}
@@ -0,0 +1,7 @@
+package com.carrental.repository;
+
+public interface CollectionVersion {
+    Long getCount();
+    Long getMaxId();
+    Long getVersionSum();
+}
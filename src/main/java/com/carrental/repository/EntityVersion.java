@@ -0,0 +1,8 @@
+package com.carrental.repository;
+
+import java.time.LocalDateTime;
+
+public interface EntityVersion {
+    Long getVersion();
+    LocalDateTime getUpdatedAt();
+}
@@ -3,16 +3,45 @@ package com.carrental.repository;
 import com.carrental.model.Booking;
 import com.carrental.model.Payment;
 import com.carrental.model.PaymentStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, Long> {
+public interface PaymentRepository extends JpaRepository<Payment, Long>, JpaSpecificationExecutor<Payment> {
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT p FROM Payment p ORDER BY p.id")
+    Stream<Payment> streamAllForExport();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT p FROM Payment p WHERE " +
+            "(:from IS NULL OR p.paymentDate >= :from) AND (:to IS NULL OR p.paymentDate < :to) AND " +
+            "(:status IS NULL OR p.paymentStatus = :status) ORDER BY p.id")
+    Stream<Payment> streamForExport(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("status") PaymentStatus status);
+
     Optional<Payment> findByBooking(Booking booking);
     List<Payment> findByPaymentStatus(PaymentStatus status);
+    boolean existsByIdAndBookingUserEmail(Long id, String email);
+
+    @Query("SELECT p.version AS version, p.updatedAt AS updatedAt FROM Payment p WHERE p.id = :id")
+    Optional<EntityVersion> findVersionById(@Param("id") Long id);
 
 }
 
@@ -0,0 +1,36 @@
+package com.carrental.repository;
+
+import com.carrental.model.RefreshToken;
+import com.carrental.model.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    boolean existsByTokenHash(String tokenHash);
+
+    @Query("SELECT r.user FROM RefreshToken r WHERE r.tokenHash = :tokenHash")
+    Optional<User> findUserByTokenHash(@Param("tokenHash") String tokenHash);
+
+    // Atomic rotation: only one caller can move an active token to revoked
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revokedAt = :now " +
+            "WHERE r.tokenHash = :tokenHash AND r.revokedAt IS NULL AND r.expiryDate > :now")
+    int revokeIfActive(@Param("tokenHash") String tokenHash, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revokedAt = :now WHERE r.user.id = :userId AND r.revokedAt IS NULL")
+    int revokeAllByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @Query("SELECT r.id FROM RefreshToken r WHERE r.expiryDate <= :now ORDER BY r.id")
+    List<Long> findExpiredIds(@Param("now") LocalDateTime now, Limit limit);
+}
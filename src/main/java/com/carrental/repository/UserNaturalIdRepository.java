@@ -0,0 +1,10 @@
+package com.carrental.repository;
+
+import com.carrental.model.User;
+
+import java.util.Optional;
+
+public interface UserNaturalIdRepository {
+    // Resolved through the natural-id cache, so repeat lookups by email skip the database
+    Optional<User> findByEmail(String email);
+}
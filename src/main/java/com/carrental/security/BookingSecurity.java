@@ -1,6 +1,5 @@
 package com.carrental.security;
 
-import com.carrental.model.Booking;
 import com.carrental.repository.BookingRepository;
 import com.carrental.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -15,9 +14,6 @@ public class BookingSecurity {
     private final UserRepository userRepository;
 
     public boolean isOwner(Authentication authentication, Long bookingId) {
-        String email = authentication.getName();
-        return bookingRepository.findById(bookingId)
-                .map(booking -> booking.getUser().getEmail().equals(email))
-                .orElse(false);
+        return bookingRepository.existsByIdAndUserEmail(bookingId, authentication.getName());
     }
 }
@@ -0,0 +1,17 @@
+package com.carrental.security;
+
+import com.carrental.model.Role;
+
+import java.security.Principal;
+
+/**
+ * Authenticated user rebuilt from verified JWT claims, without a database lookup.
+ * {@link #getName()} returns the email so {@code authentication.getName()} keeps working.
+ */
+public record JwtPrincipal(Long id, String email, Role role) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,50 @@
+package com.carrental.security;
+
+import com.carrental.event.UserSecurityChangedEvent;
+import com.carrental.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Small bounded cache of each user's current security version, used to reject tokens issued
+ * before a credential/role change. Entries expire after a TTL so changes made on other
+ * nodes are picked up without a shared cache. Versions are loaded inside the cache's own
+ * per-key computation, so an invalidation arriving while one is being read waits for it and then
+ * removes it, rather than being overwritten by the version read before the change.
+ */
+@Component
+@Slf4j
+public class SecurityVersionCache {
+
+    private static final long REVOKED = -1;
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Long> versions;
+
+    public SecurityVersionCache(UserRepository userRepository,
+                                @Value("${app.jwt.security-version-cache.max-entries:10000}") int maxEntries,
+                                @Value("${app.jwt.security-version-cache.ttl-ms:60000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        long version = versions.get(userId, id -> userRepository.findActiveSecurityVersionById(id).orElse(REVOKED));
+        return version != REVOKED && version == tokenVersion;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        versions.invalidate(event.userId());
+        log.debug("Invalidated cached security version for user {}", event.userId());
+    }
+}
@@ -2,7 +2,10 @@ package com.carrental.security.jwt;
 
 
 
-import com.carrental.security.service.UserDetailsServiceImpl;
+import com.carrental.model.Role;
+import com.carrental.security.JwtPrincipal;
+import com.carrental.security.SecurityVersionCache;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,37 +13,33 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Slf4j
 @RequiredArgsConstructor
 public class AuthTokenFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final SecurityVersionCache securityVersionCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
             String jwt = jwtUtils.parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            Claims claims = jwt != null ? jwtUtils.verifyJwtToken(jwt) : null;
+            if (claims != null) {
+                UsernamePasswordAuthenticationToken authentication = authenticationFromClaims(claims);
+                if (authentication != null) {
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception e) {
             log.error("Cannot set user authentication: {}", e.getMessage());
@@ -48,4 +47,24 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private UsernamePasswordAuthenticationToken authenticationFromClaims(Claims claims) {
+        // Refresh tokens, and tokens issued before types were set, carry no user id or security version
+        if (!JwtUtils.ACCESS_TOKEN.equals(claims.get(JwtUtils.TOKEN_TYPE_CLAIM, String.class))) {
+            log.debug("Rejecting token of type {} as an access token", claims.get(JwtUtils.TOKEN_TYPE_CLAIM));
+            return null;
+        }
+
+        Long userId = claims.get(JwtUtils.USER_ID_CLAIM, Long.class);
+        Long tokenVersion = claims.get(JwtUtils.SECURITY_VERSION_CLAIM, Long.class);
+        if (userId == null || tokenVersion == null || !securityVersionCache.isCurrent(userId, tokenVersion)) {
+            log.debug("Rejecting revoked token for user {}", userId);
+            return null;
+        }
+
+        Role role = Role.valueOf(claims.get(JwtUtils.ROLE_CLAIM, String.class));
+        JwtPrincipal principal = new JwtPrincipal(userId, claims.getSubject(), role);
+        return new UsernamePasswordAuthenticationToken(principal, null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role.name())));
+    }
 }
@@ -5,6 +5,7 @@ import com.carrental.model.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,11 +15,21 @@ import org.springframework.util.StringUtils;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 @Slf4j
 public class JwtUtils {
 
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    public static final String SECURITY_VERSION_CLAIM = "sv";
+
+    // Both kinds are signed with the same key; only access tokens authenticate requests
+    public static final String TOKEN_TYPE_CLAIM = "typ";
+    public static final String ACCESS_TOKEN = "access";
+    public static final String REFRESH_TOKEN = "refresh";
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
@@ -28,42 +39,77 @@ public class JwtUtils {
     @Value("${app.jwt.refresh-expiration}")
     private int refreshExpirationMs;
 
+    @Value("${app.jwt.verified-token-cache.max-entries:10000}")
+    private int verifiedTokenCacheMaxEntries;
+
+    // Built once: the key is immutable and the parser is thread-safe
+    private Key signingKey;
+    private JwtParser parser;
+    private VerifiedTokenCache verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verifiedTokens = new VerifiedTokenCache(verifiedTokenCacheMaxEntries);
+    }
+
     public String generateJwtToken(Authentication authentication) {
         User userPrincipal = (User) authentication.getPrincipal();
-        return generateTokenFromUsername(userPrincipal.getUsername());
+        return generateTokenForUser(userPrincipal);
     }
 
-    public String generateTokenFromUsername(String username) {
+    // Carries everything AuthTokenFilter needs to build the principal without loading the user
+    public String generateTokenForUser(User user) {
         return Jwts.builder()
-                .setSubject(username)
+                .setSubject(user.getEmail())
+                .claim(TOKEN_TYPE_CLAIM, ACCESS_TOKEN)
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLE_CLAIM, user.getRole().name())
+                .claim(SECURITY_VERSION_CLAIM, user.getSecurityVersion())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(key(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public String generateRefreshToken(String username) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
+                .claim(TOKEN_TYPE_CLAIM, REFRESH_TOKEN)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + refreshExpirationMs))
-                .signWith(key(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    public String getUserNameFromJwtToken(String token) {
+        return getClaimsFromJwtToken(token).getSubject();
     }
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody().getSubject();
+    public Claims getClaimsFromJwtToken(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public boolean validateJwtToken(String authToken) {
+        return verifyJwtToken(authToken) != null;
+    }
+
+    /**
+     * Verifies the token and returns its claims, or null if it is invalid or expired.
+     * Recently verified access tokens are served from a bounded cache until they expire,
+     * so a client replaying the same token skips the signature check.
+     */
+    public Claims verifyJwtToken(String authToken) {
+        Claims cached = verifiedTokens.get(authToken);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            Jwts.parserBuilder().setSigningKey(key()).build().parseClaimsJws(authToken);
-            return true;
+            Claims claims = parser.parseClaimsJws(authToken).getBody();
+            verifiedTokens.put(authToken, claims);
+            return claims;
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -72,8 +118,10 @@ public class JwtUtils {
             log.error("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             log.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (io.jsonwebtoken.security.SecurityException e) {
+            log.error("Invalid JWT signature: {}", e.getMessage());
         }
-        return false;
+        return null;
     }
 
     public String parseJwt(HttpServletRequest request) {
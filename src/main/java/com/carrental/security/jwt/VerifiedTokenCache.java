@@ -0,0 +1,55 @@
+package com.carrental.security.jwt;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of recently verified tokens, keyed by the SHA-256 digest of the token so
+ * raw bearer tokens are never retained. Entries are dropped once the token expires.
+ */
+class VerifiedTokenCache {
+
+    private final Map<String, Entry> entries;
+
+    VerifiedTokenCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    Claims get(String token) {
+        String digest = TokenDigests.sha256(token);
+        synchronized (entries) {
+            Entry entry = entries.get(digest);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() >= entry.expiresAt()) {
+                entries.remove(digest);
+                return null;
+            }
+            return entry.claims();
+        }
+    }
+
+    void put(String token, Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            // Never cache tokens that do not expire
+            return;
+        }
+        String digest = TokenDigests.sha256(token);
+        synchronized (entries) {
+            entries.put(digest, new Entry(claims, expiration.getTime()));
+        }
+    }
+
+    private record Entry(Claims claims, long expiresAt) {
+    }
+}
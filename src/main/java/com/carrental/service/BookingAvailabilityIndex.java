@@ -0,0 +1,149 @@
+package com.carrental.service;
+
+import com.carrental.event.BookingChangedEvent;
+import com.carrental.repository.BookingDateRange;
+import com.carrental.repository.BookingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory calendar of the days each car is occupied by a non-cancelled booking.
+ * Lets {@link BookingService} reject conflicting bookings without touching the database;
+ * the SQL overlap check remains the final guard inside the booking transaction.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookingAvailabilityIndex {
+
+    private final BookingRepository bookingRepository;
+
+    private final Object lock = new Object();
+
+    private volatile Map<Long, CarCalendar> calendars = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    // Events received while a reload is reading from the database; replayed onto the fresh snapshot
+    private List<BookingChangedEvent> pendingEvents;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.availability.reload-interval-ms:300000}",
+            initialDelayString = "${app.availability.reload-interval-ms:300000}")
+    public void reload() {
+        synchronized (lock) {
+            pendingEvents = new ArrayList<>();
+        }
+
+        Map<Long, CarCalendar> fresh = new ConcurrentHashMap<>();
+        try {
+            List<BookingDateRange> ranges = bookingRepository.findActiveDateRanges(LocalDate.now());
+            for (BookingDateRange range : ranges) {
+                fresh.computeIfAbsent(range.getCarId(), id -> new CarCalendar())
+                        .reserve(range.getId(), range.getStartDate(), range.getEndDate());
+            }
+            log.debug("Loaded {} active bookings into the availability index", ranges.size());
+        } catch (RuntimeException ex) {
+            log.error("Could not load the availability index, keeping the previous snapshot", ex);
+            synchronized (lock) {
+                pendingEvents = null;
+            }
+            return;
+        }
+
+        synchronized (lock) {
+            pendingEvents.forEach(event -> apply(fresh, event));
+            pendingEvents = null;
+            calendars = fresh;
+            loaded = true;
+        }
+    }
+
+    /**
+     * Returns true only when the index knows of a booking overlapping the given dates.
+     * Before the first load completes this always returns false so callers fall back to SQL.
+     */
+    public boolean hasOverlap(Long carId, LocalDate startDate, LocalDate endDate) {
+        if (!loaded) {
+            return false;
+        }
+        CarCalendar calendar = calendars.get(carId);
+        return calendar != null && calendar.overlaps(startDate, endDate);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        synchronized (lock) {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+            }
+            apply(calendars, event);
+        }
+    }
+
+    private void apply(Map<Long, CarCalendar> target, BookingChangedEvent event) {
+        if (event.occupiesCar()) {
+            target.computeIfAbsent(event.carId(), id -> new CarCalendar())
+                    .reserve(event.bookingId(), event.startDate(), event.endDate());
+        } else {
+            CarCalendar calendar = target.get(event.carId());
+            if (calendar != null) {
+                calendar.release(event.bookingId());
+            }
+        }
+    }
+
+    private record DateSpan(LocalDate startDate, LocalDate endDate) {
+    }
+
+    // Reservations are keyed by booking id so replaying the same event is harmless
+    private static final class CarCalendar {
+
+        private final Map<Long, DateSpan> bookings = new HashMap<>();
+        private final NavigableMap<LocalDate, Integer> occupiedDays = new TreeMap<>();
+
+        synchronized void reserve(Long bookingId, LocalDate startDate, LocalDate endDate) {
+            DateSpan span = new DateSpan(startDate, endDate);
+            DateSpan previous = bookings.put(bookingId, span);
+            if (span.equals(previous)) {
+                return;
+            }
+            if (previous != null) {
+                unmark(previous);
+            }
+            for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+                occupiedDays.merge(day, 1, Integer::sum);
+            }
+        }
+
+        synchronized void release(Long bookingId) {
+            DateSpan span = bookings.remove(bookingId);
+            if (span != null) {
+                unmark(span);
+            }
+        }
+
+        synchronized boolean overlaps(LocalDate startDate, LocalDate endDate) {
+            return !occupiedDays.subMap(startDate, true, endDate, true).isEmpty();
+        }
+
+        private void unmark(DateSpan span) {
+            for (LocalDate day = span.startDate(); !day.isAfter(span.endDate()); day = day.plusDays(1)) {
+                occupiedDays.computeIfPresent(day, (d, count) -> count == 1 ? null : count - 1);
+            }
+        }
+    }
+}
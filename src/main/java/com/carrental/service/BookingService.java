@@ -3,85 +3,195 @@ package com.carrental.service;
 import com.carrental.dto.request.BookingRequest;
 import com.carrental.dto.response.BookingResponse;
 import com.carrental.dto.response.CarResponse;
+import com.carrental.dto.response.CursorPage;
 import com.carrental.dto.response.UserResponse;
+import com.carrental.event.BookingChangedEvent;
+import com.carrental.event.CarCatalogChangedEvent;
 import com.carrental.exception.ResourceNotFoundException;
 import com.carrental.model.*;
 import com.carrental.repository.BookingRepository;
 import com.carrental.repository.CarRepository;
 import com.carrental.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class BookingService {
 
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
     private final CarRepository carRepository;
     private final EmailService emailService;
+    private final BookingAvailabilityIndex availabilityIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CarLockStripes carLockStripes;
+    private final TransactionTemplate transactionTemplate;
+    private final StreamingExporter streamingExporter;
 
-    public List<BookingResponse> getAllBookings() {
-        return bookingRepository.findAll().stream()
-                .map(this::mapToBookingResponse)
-                .collect(Collectors.toList());
+    @Value("${app.booking.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.booking.retry-backoff-ms:50}")
+    private long retryBackoffMs;
+
+    @Value("${app.booking.lock-timeout-ms:5000}")
+    private long lockTimeoutMs;
+
+    private static final Map<String, Function<String, ?>> SORT_KEYS = Map.of(
+            "id", Long::valueOf,
+            "startDate", LocalDate::parse);
+
+    private static final List<CsvColumn<Booking>> CSV_COLUMNS = List.of(
+            CsvColumn.of("id", Booking::getId),
+            CsvColumn.of("userId", b -> b.getUser().getId()),
+            CsvColumn.of("userEmail", b -> b.getUser().getEmail()),
+            CsvColumn.of("carId", b -> b.getCar().getId()),
+            CsvColumn.of("carMake", b -> b.getCar().getMake()),
+            CsvColumn.of("carModel", b -> b.getCar().getModel()),
+            CsvColumn.of("licensePlate", b -> b.getCar().getLicensePlate()),
+            CsvColumn.of("startDate", Booking::getStartDate),
+            CsvColumn.of("endDate", Booking::getEndDate),
+            CsvColumn.of("totalPrice", Booking::getTotalPrice),
+            CsvColumn.of("status", Booking::getStatus),
+            CsvColumn.of("pickupLocation", Booking::getPickupLocation),
+            CsvColumn.of("dropOffLocation", Booking::getDropOffLocation),
+            CsvColumn.of("createdAt", Booking::getCreatedAt));
+
+    @Transactional(readOnly = true)
+    public CursorPage<BookingResponse> getAllBookings(String cursor, Integer size, String sort, String direction) {
+        KeysetPagination.PageRequest page = KeysetPagination.of(cursor, size, sort, direction, SORT_KEYS);
+        // User and car come in the same join, so mapping to BookingResponse issues no extra selects
+        return page.toPage(page.scroll(bookingRepository, "user", "car"), this::mapToBookingResponse);
     }
 
+    public StreamingResponseBody exportBookings(ExportFormat format) {
+        return streamingExporter.json(bookingRepository::streamAllForExport, this::mapToBookingResponse, format);
+    }
+
+    public StreamingResponseBody exportBookingsCsv(LocalDate from, LocalDate to, BookingStatus status, boolean gzip) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must be before end date");
+        }
+        return streamingExporter.csv(() -> bookingRepository.streamForExport(from, to, status), CSV_COLUMNS, gzip);
+    }
+
+    @Transactional(readOnly = true)
     public BookingResponse getBookingById(Long id) {
-        Booking booking = bookingRepository.findById(id)
+        Booking booking = bookingRepository.findWithUserAndCarById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Booking not found with id: " + id));
         return mapToBookingResponse(booking);
     }
 
+    @Transactional(readOnly = true)
+    public ResourceVersion getBookingVersion(Long id) {
+        return bookingRepository.findVersionById(id)
+                .map(v -> ResourceVersion.of("booking-" + id + "-" + v.getVersion() + "." + v.getCarVersion(),
+                        ResourceVersion.latest(v.getUpdatedAt(), v.getCarUpdatedAt())))
+                .orElseThrow(() -> new ResourceNotFoundException("Booking not found with id: " + id));
+    }
+
+    @Transactional(readOnly = true)
     public List<BookingResponse> getBookingsByUser(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
-        return bookingRepository.findByUser(user).stream()
+        List<Booking> bookings = bookingRepository.findByUserEmail(email);
+        if (bookings.isEmpty() && !userRepository.existsByEmail(email)) {
+            throw new UsernameNotFoundException("User not found with email: " + email);
+        }
+        return bookings.stream()
                 .map(this::mapToBookingResponse)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<BookingResponse> getBookingsByCar(Long carId) {
-        Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new ResourceNotFoundException("Car not found with id: " + carId));
-        return bookingRepository.findByCar(car).stream()
+        List<Booking> bookings = bookingRepository.findByCarId(carId);
+        if (bookings.isEmpty() && !carRepository.existsById(carId)) {
+            throw new ResourceNotFoundException("Car not found with id: " + carId);
+        }
+        return bookings.stream()
                 .map(this::mapToBookingResponse)
                 .collect(Collectors.toList());
     }
 
-    @Transactional
     public BookingResponse createBooking(String userEmail, BookingRequest bookingRequest) {
+        // Validate dates
+        if (bookingRequest.getStartDate().isAfter(bookingRequest.getEndDate())) {
+            throw new IllegalArgumentException("Start date must be before end date");
+        }
+
+        // Reject conflicts the in-memory index already knows about before touching the database
+        if (availabilityIndex.hasOverlap(bookingRequest.getCarId(), bookingRequest.getStartDate(), bookingRequest.getEndDate())) {
+            throw new IllegalStateException("Car is already booked for the selected dates");
+        }
+
+        Lock carLock = carLockStripes.forCar(bookingRequest.getCarId());
+        Booking savedBooking;
+        try {
+            if (!carLock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Car is busy with another booking, please try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Booking was interrupted", e);
+        }
+        try {
+            savedBooking = executeWithRetry(() ->
+                    transactionTemplate.execute(status -> insertBooking(userEmail, bookingRequest)));
+        } finally {
+            carLock.unlock();
+        }
+
+        // Send confirmation email
+        Car car = savedBooking.getCar();
+        String bookingDetails = "<p><strong>Car:</strong> " + car.getMake() + " " + car.getModel() + "</p>"
+                + "<p><strong>Dates:</strong> " + bookingRequest.getStartDate() + " to " + bookingRequest.getEndDate() + "</p>"
+                + "<p><strong>Pickup Location:</strong> " + bookingRequest.getPickupLocation() + "</p>"
+                + "<p><strong>Drop-off Location:</strong> " + bookingRequest.getDropOffLocation() + "</p>"
+                + "<p><strong>Total Price:</strong> $" + savedBooking.getTotalPrice() + "</p>";
+        emailService.sendBookingConfirmationEmail(userEmail, bookingDetails);
+
+        return mapToBookingResponse(savedBooking);
+    }
+
+    private Booking insertBooking(String userEmail, BookingRequest bookingRequest) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + userEmail));
 
-        Car car = carRepository.findById(bookingRequest.getCarId())
+        // Row lock on the car serializes bookings for the same car across nodes
+        Car car = carRepository.findByIdForUpdate(bookingRequest.getCarId())
                 .orElseThrow(() -> new ResourceNotFoundException("Car not found with id: " + bookingRequest.getCarId()));
 
         if (!car.isAvailable()) {
             throw new IllegalStateException("Car is not available for booking");
         }
 
-        // Check for overlapping bookings
-        List<Booking> overlappingBookings = bookingRepository.findOverlappingBookings(
-                car.getId(), bookingRequest.getStartDate(), bookingRequest.getEndDate());
-
-        if (!overlappingBookings.isEmpty()) {
+        // Final guard: catches bookings committed since the index last saw them
+        if (bookingRepository.existsOverlappingBooking(
+                car.getId(), bookingRequest.getStartDate(), bookingRequest.getEndDate())) {
             throw new IllegalStateException("Car is already booked for the selected dates");
         }
 
-        // Validate dates
-        if (bookingRequest.getStartDate().isAfter(bookingRequest.getEndDate())) {
-            throw new IllegalArgumentException("Start date must be before end date");
-        }
-
         // Calculate total price
         long days = ChronoUnit.DAYS.between(bookingRequest.getStartDate(), bookingRequest.getEndDate()) + 1;
         BigDecimal totalPrice = car.getPricePerDay().multiply(BigDecimal.valueOf(days));
@@ -98,21 +208,33 @@ public class BookingService {
                 .build();
 
         Booking savedBooking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(BookingChangedEvent.of(savedBooking));
+        return savedBooking;
+    }
 
-        // Send confirmation email
-        String bookingDetails = "<p><strong>Car:</strong> " + car.getMake() + " " + car.getModel() + "</p>"
-                + "<p><strong>Dates:</strong> " + bookingRequest.getStartDate() + " to " + bookingRequest.getEndDate() + "</p>"
-                + "<p><strong>Pickup Location:</strong> " + bookingRequest.getPickupLocation() + "</p>"
-                + "<p><strong>Drop-off Location:</strong> " + bookingRequest.getDropOffLocation() + "</p>"
-                + "<p><strong>Total Price:</strong> $" + totalPrice + "</p>";
-        emailService.sendBookingConfirmationEmail(user.getEmail(), bookingDetails);
-
-        return mapToBookingResponse(savedBooking);
+    private <T> T executeWithRetry(Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                long backoff = retryBackoffMs * (1L << (attempt - 1));
+                log.debug("Booking attempt {} hit a concurrency conflict, retrying in ~{} ms", attempt, backoff);
+                try {
+                    Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff + 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
     }
 
     @Transactional
     public BookingResponse updateBookingStatus(Long id, BookingStatus status) {
-        Booking booking = bookingRepository.findById(id)
+        Booking booking = bookingRepository.findWithUserAndCarById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Booking not found with id: " + id));
 
         booking.setStatus(status);
@@ -122,18 +244,20 @@ public class BookingService {
             Car car = booking.getCar();
             car.setAvailable(true);
             carRepository.save(car);
+            eventPublisher.publishEvent(new CarCatalogChangedEvent(car.getId()));
         }
 
         Booking updatedBooking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(BookingChangedEvent.of(updatedBooking));
         return mapToBookingResponse(updatedBooking);
     }
 
     @Transactional
     public void deleteBooking(Long id) {
-        if (!bookingRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Booking not found with id: " + id);
-        }
-        bookingRepository.deleteById(id);
+        Booking booking = bookingRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Booking not found with id: " + id));
+        bookingRepository.delete(booking);
+        eventPublisher.publishEvent(BookingChangedEvent.deleted(booking));
     }
 
     private BookingResponse mapToBookingResponse(Booking booking) {
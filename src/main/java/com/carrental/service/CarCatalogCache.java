@@ -0,0 +1,87 @@
+package com.carrental.service;
+
+import com.carrental.event.BookingChangedEvent;
+import com.carrental.event.CarCatalogChangedEvent;
+import com.carrental.event.CarsImportedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Names of the catalog caches behind {@link CarService}, their keys and their invalidation rules.
+ * Keys carry a generation that moves on after every committed change, before the caches are
+ * cleared: a reader that read the rows before the commit stores its result under the old
+ * generation, where no later request looks, so it cannot refill a cache with stale data.
+ * Availability keys also carry a generation moved by booking changes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CarCatalogCache {
+
+    public static final String CARS = "cars";
+    public static final String LISTINGS = "carListings";
+    public static final String SEARCHES = "carSearches";
+    public static final String FACETED_SEARCHES = "carFacetedSearches";
+    public static final String AVAILABILITY = "carAvailability";
+    public static final String VERSIONS = "carVersions";
+
+    private final CacheManager cacheManager;
+    private final AtomicLong catalogGeneration = new AtomicLong();
+    private final AtomicLong bookingGeneration = new AtomicLong();
+
+    public SimpleKey catalogKey(Object... params) {
+        return new SimpleKey(catalogGeneration.get(), new SimpleKey(params));
+    }
+
+    public SimpleKey availabilityKey(Object... params) {
+        return new SimpleKey(catalogGeneration.get(), bookingGeneration.get(), new SimpleKey(params));
+    }
+
+    // Old generations are unreachable once the generation moves; clearing only frees their memory
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onCarCatalogChanged(CarCatalogChangedEvent event) {
+        catalogGeneration.incrementAndGet();
+        clear(CARS);
+        clear(LISTINGS);
+        clear(SEARCHES);
+        clear(FACETED_SEARCHES);
+        clear(AVAILABILITY);
+        clear(VERSIONS);
+        log.debug("Invalidated catalog caches after change to car {}", event.carId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onCarsImported(CarsImportedEvent event) {
+        catalogGeneration.incrementAndGet();
+        clear(LISTINGS);
+        clear(SEARCHES);
+        clear(FACETED_SEARCHES);
+        clear(AVAILABILITY);
+        log.debug("Invalidated catalog listings after importing {} cars", event.carIds().size());
+    }
+
+    // Date-range availability depends on bookings, not just on the car rows
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onBookingChanged(BookingChangedEvent event) {
+        bookingGeneration.incrementAndGet();
+        clear(AVAILABILITY);
+    }
+
+    private void clear(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
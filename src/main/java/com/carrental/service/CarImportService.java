@@ -0,0 +1,211 @@
+package com.carrental.service;
+
+import com.carrental.dto.request.CarRequest;
+import com.carrental.dto.response.CarImportResponse;
+import com.carrental.event.CarsImportedEvent;
+import com.carrental.model.Car;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk car import. Rows are parsed and validated as they arrive, then inserted in JDBC
+ * batches, one transaction per batch. A row that fails parsing, validation or its insert is
+ * reported by line number and the rest of the import carries on. A CSV quote left open stops
+ * the import there; the rows before it are still imported and reported.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CarImportService {
+
+    private static final Map<String, String> CSV_FIELDS = csvFields(
+            "make", "model", "year", "pricePerDay", "available", "licensePlate", "color", "transmission", "seats", "fuelType");
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${app.cars.import.batch-size:100}")
+    private int batchSize;
+
+    public CarImportResponse importNdjson(InputStream body) throws IOException {
+        Import result = new Import();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                CarRequest request = objectMapper.readValue(line, CarRequest.class);
+                if (request == null) {
+                    result.reject(lineNumber, "Expected a JSON object");
+                } else {
+                    result.accept(lineNumber, request);
+                }
+            } catch (JsonProcessingException e) {
+                result.reject(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+        return result.finish();
+    }
+
+    // The header row names the columns; names match CarRequest fields, ignoring case, '_' and spaces
+    public CarImportResponse importCsv(InputStream body) throws IOException {
+        Import result = new Import();
+        CsvRecordReader reader = new CsvRecordReader(
+                new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        List<String> header = next(reader, result);
+        if (header == null) {
+            return result.finish();
+        }
+        List<String> fields = header.stream()
+                .map(column -> CSV_FIELDS.get(normalize(column)))
+                .toList();
+
+        List<String> record;
+        while ((record = next(reader, result)) != null) {
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < Math.min(fields.size(), record.size()); i++) {
+                String value = record.get(i).trim();
+                if (fields.get(i) != null && !value.isEmpty()) {
+                    values.put(fields.get(i), value);
+                }
+            }
+            try {
+                result.accept(reader.recordLine(), objectMapper.convertValue(values, CarRequest.class));
+            } catch (IllegalArgumentException e) {
+                Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+                result.reject(reader.recordLine(), "Invalid value: " + (cause instanceof JsonProcessingException json
+                        ? json.getOriginalMessage() : cause.getMessage()));
+            }
+        }
+        return result.finish();
+    }
+
+    // Malformed CSV cannot be resynchronised, so it ends the import as a rejected row
+    private static List<String> next(CsvRecordReader reader, Import result) throws IOException {
+        try {
+            return reader.next();
+        } catch (CsvRecordReader.MalformedRecordException e) {
+            result.reject(reader.recordLine(), e.getMessage());
+            return null;
+        }
+    }
+
+    private class Import {
+        private final List<Long> pendingLines = new ArrayList<>(batchSize);
+        private final List<CarRequest> pending = new ArrayList<>(batchSize);
+        private final List<CarImportResponse.RowError> errors = new ArrayList<>();
+        private int imported;
+
+        void accept(long line, CarRequest request) {
+            Set<ConstraintViolation<CarRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject(line, violations.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            pendingLines.add(line);
+            pending.add(request);
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(long line, String message) {
+            errors.add(new CarImportResponse.RowError(line, message));
+        }
+
+        CarImportResponse finish() {
+            flush();
+            errors.sort((a, b) -> Long.compare(a.line(), b.line()));
+            log.info("Imported {} cars, rejected {} rows", imported, errors.size());
+            return CarImportResponse.builder()
+                    .imported(imported)
+                    .failed(errors.size())
+                    .errors(errors)
+                    .build();
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                imported += insert(pending);
+            } catch (PersistenceException | DataAccessException batchFailure) {
+                // Replay the batch row by row so only the offending rows are rejected
+                for (int i = 0; i < pending.size(); i++) {
+                    try {
+                        imported += insert(List.of(pending.get(i)));
+                    } catch (PersistenceException | DataAccessException rowFailure) {
+                        reject(pendingLines.get(i), NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage());
+                    }
+                }
+            }
+            pending.clear();
+            pendingLines.clear();
+        }
+    }
+
+    private int insert(List<CarRequest> requests) {
+        return transactionTemplate.execute(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            List<Long> ids = new ArrayList<>(requests.size());
+            for (CarRequest request : requests) {
+                Car car = CarService.toCar(request);
+                entityManager.persist(car);
+                ids.add(car.getId());
+            }
+            entityManager.flush();
+            entityManager.clear();
+            eventPublisher.publishEvent(new CarsImportedEvent(ids));
+            return ids.size();
+        });
+    }
+
+    private static Map<String, String> csvFields(String... names) {
+        Map<String, String> fields = new HashMap<>();
+        for (String name : names) {
+            fields.put(normalize(name), name);
+        }
+        return fields;
+    }
+
+    private static String normalize(String column) {
+        return column.replace("_", "").replace(" ", "").replace("\uFEFF", "").toLowerCase(Locale.ROOT);
+    }
+}
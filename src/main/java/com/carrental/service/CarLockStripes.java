@@ -0,0 +1,28 @@
+package com.carrental.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks used to serialize booking writes for the same car within this node.
+ * Cross-node safety comes from the row lock taken on the car inside the transaction.
+ */
+@Component
+public class CarLockStripes {
+
+    private final Lock[] stripes;
+
+    public CarLockStripes(@Value("${app.booking.lock-stripes:64}") int stripeCount) {
+        this.stripes = new Lock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock forCar(Long carId) {
+        return stripes[Math.floorMod(carId.hashCode(), stripes.length)];
+    }
+}
@@ -0,0 +1,542 @@
+package com.carrental.service;
+
+import com.carrental.dto.response.CarResponse;
+import com.carrental.dto.response.CarSearchResponse;
+import com.carrental.event.CarCatalogChangedEvent;
+import com.carrental.event.CarsImportedEvent;
+import com.carrental.model.Car;
+import com.carrental.repository.CarRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory n-gram inverted index over the searchable text fields of every car.
+ * Every 1-, 2- and 3-character substring of a field value maps to a bitset of car
+ * ordinals, so a substring query is a handful of bitset intersections instead of a
+ * LIKE '%...%' table scan. Terms longer than three characters are narrowed by their
+ * trigrams; since trigram containment alone allows false positives, the surviving
+ * candidates are verified while they are scored.
+ * <p>
+ * Facet values (make, transmission, fuel type, seats, price bucket) keep their own
+ * bitsets, so facet counts are one intersection per value with the final result set.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CarSearchIndex {
+
+    enum Field {
+        MAKE(3), MODEL(3), COLOR(1), TRANSMISSION(1), FUEL_TYPE(1);
+
+        private final int weight;
+
+        Field(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    enum Facet {
+        MAKE("make"), TRANSMISSION("transmission"), FUEL_TYPE("fuelType"), SEATS("seats"), PRICE("price");
+
+        private final String key;
+
+        Facet(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final int GRAM = 3;
+
+    // Upper bounds of the price facet buckets; the last bucket is open-ended
+    private static final BigDecimal[] PRICE_BUCKETS = {
+            BigDecimal.valueOf(50), BigDecimal.valueOf(100), BigDecimal.valueOf(200)};
+
+    private final CarRepository carRepository;
+
+    private final Object lock = new Object();
+    private final Object mutationLock = new Object();
+
+    private volatile Snapshot snapshot;
+
+    // Cars changed while a reload is reading from the database; re-fetched onto the fresh snapshot
+    private List<Long> pendingCarIds;
+
+    // Build started by the first search to find no snapshot; later searches wait on it instead of rebuilding
+    private CompletableFuture<Snapshot> firstBuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.search.reload-interval-ms:300000}",
+            initialDelayString = "${app.search.reload-interval-ms:300000}")
+    public void reload() {
+        try {
+            build();
+        } catch (RuntimeException ex) {
+            log.error("Could not load the search index, keeping the previous snapshot", ex);
+        }
+    }
+
+    private Snapshot build() {
+        synchronized (lock) {
+            pendingCarIds = new ArrayList<>();
+        }
+
+        Snapshot fresh = new Snapshot();
+        try {
+            List<Car> cars = carRepository.findAll();
+            cars.forEach(fresh::upsert);
+            log.debug("Indexed {} cars for search", cars.size());
+        } catch (RuntimeException ex) {
+            synchronized (lock) {
+                pendingCarIds = null;
+            }
+            throw ex;
+        }
+
+        List<Long> replay;
+        synchronized (lock) {
+            replay = pendingCarIds;
+            pendingCarIds = null;
+            snapshot = fresh;
+        }
+        replay.forEach(this::refresh);
+        return fresh;
+    }
+
+    // Searches arriving before any snapshot exists share one build; a failed build is retried by the next search
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+
+        CompletableFuture<Snapshot> pending;
+        boolean owner = false;
+        synchronized (lock) {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            if (firstBuild == null) {
+                firstBuild = new CompletableFuture<>();
+                owner = true;
+            }
+            pending = firstBuild;
+        }
+
+        if (owner) {
+            try {
+                pending.complete(build());
+            } catch (RuntimeException ex) {
+                pending.completeExceptionally(ex);
+            } finally {
+                synchronized (lock) {
+                    firstBuild = null;
+                }
+            }
+        }
+        try {
+            return pending.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+
+    // Runs before CarCatalogCache clears the search cache so it cannot be refilled from a stale index
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCarCatalogChanged(CarCatalogChangedEvent event) {
+        synchronized (lock) {
+            if (pendingCarIds != null) {
+                pendingCarIds.add(event.carId());
+            }
+        }
+        refresh(event.carId());
+    }
+
+    // One query per imported batch instead of one per car
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCarsImported(CarsImportedEvent event) {
+        synchronized (lock) {
+            if (pendingCarIds != null) {
+                pendingCarIds.addAll(event.carIds());
+            }
+        }
+        synchronized (mutationLock) {
+            Snapshot current = snapshot;
+            if (current != null) {
+                carRepository.findAllById(event.carIds()).forEach(current::upsert);
+            }
+        }
+    }
+
+    /**
+     * Cars whose fields contain every term, filtered by price and availability and ranked by
+     * field weight and match quality (exact, prefix, substring), then by id.
+     *
+     * @param query free text; each whitespace-separated token may match any indexed field
+     */
+    public List<CarResponse> search(String query, String make, String model,
+                                    BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
+        return search(query, make, model, minPrice, maxPrice, available, false).getCars();
+    }
+
+    /**
+     * Same as {@link #search}, plus the number of matching cars per facet value.
+     */
+    public CarSearchResponse searchWithFacets(String query, String make, String model,
+                                              BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
+        return search(query, make, model, minPrice, maxPrice, available, true);
+    }
+
+    private CarSearchResponse search(String query, String make, String model, BigDecimal minPrice,
+                                     BigDecimal maxPrice, Boolean available, boolean withFacets) {
+        Snapshot current = current();
+
+        List<Term> terms = new ArrayList<>();
+        if (query != null) {
+            for (String token : query.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+                if (!token.isEmpty()) {
+                    terms.add(new Term(token, Field.values()));
+                }
+            }
+        }
+        addTerm(terms, make, Field.MAKE);
+        addTerm(terms, model, Field.MODEL);
+
+        return current.search(terms, minPrice, maxPrice, available, withFacets);
+    }
+
+    private static void addTerm(List<Term> terms, String value, Field field) {
+        if (value != null && !value.isBlank()) {
+            terms.add(new Term(value.trim().toLowerCase(Locale.ROOT), new Field[]{field}));
+        }
+    }
+
+    private void refresh(Long carId) {
+        synchronized (mutationLock) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            carRepository.findById(carId).ifPresentOrElse(current::upsert, () -> current.remove(carId));
+        }
+    }
+
+    private record Term(String text, Field[] fields) {
+    }
+
+    private record Doc(CarResponse car, Map<Field, String> values, Map<Facet, String> facets) {
+    }
+
+    private record Hit(CarResponse car, long id, int score) {
+    }
+
+    private static final Comparator<Hit> BY_RELEVANCE = (a, b) -> a.score() != b.score()
+            ? Integer.compare(b.score(), a.score())
+            : Long.compare(a.id(), b.id());
+
+    private static final class Snapshot {
+
+        private final ReadWriteLock rw = new ReentrantReadWriteLock();
+
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final List<Doc> docs = new ArrayList<>();
+        private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+        private final BitSet live = new BitSet();
+        private final BitSet available = new BitSet();
+        private final Map<Field, Map<String, BitSet>> postings = new EnumMap<>(Field.class);
+        private final Map<Facet, Map<String, BitSet>> facetPostings = new EnumMap<>(Facet.class);
+
+        Snapshot() {
+            for (Field field : Field.values()) {
+                postings.put(field, new HashMap<>());
+            }
+            for (Facet facet : Facet.values()) {
+                facetPostings.put(facet, new HashMap<>());
+            }
+        }
+
+        void upsert(Car car) {
+            Doc doc = new Doc(CarService.mapToCarResponse(car), fieldValues(car), facetValues(car));
+            rw.writeLock().lock();
+            try {
+                Integer existing = ordinals.get(car.getId());
+                int ordinal;
+                if (existing != null) {
+                    ordinal = existing;
+                    unindex(ordinal);
+                } else {
+                    ordinal = freeOrdinals.isEmpty() ? docs.size() : freeOrdinals.pop();
+                    ordinals.put(car.getId(), ordinal);
+                }
+                if (ordinal == docs.size()) {
+                    docs.add(doc);
+                } else {
+                    docs.set(ordinal, doc);
+                }
+                live.set(ordinal);
+                available.set(ordinal, car.isAvailable());
+                for (Map.Entry<Field, String> value : doc.values().entrySet()) {
+                    Map<String, BitSet> fieldPostings = postings.get(value.getKey());
+                    for (String gram : grams(value.getValue())) {
+                        fieldPostings.computeIfAbsent(gram, g -> new BitSet()).set(ordinal);
+                    }
+                }
+                for (Map.Entry<Facet, String> value : doc.facets().entrySet()) {
+                    facetPostings.get(value.getKey()).computeIfAbsent(value.getValue(), v -> new BitSet()).set(ordinal);
+                }
+            } finally {
+                rw.writeLock().unlock();
+            }
+        }
+
+        void remove(Long carId) {
+            rw.writeLock().lock();
+            try {
+                Integer ordinal = ordinals.remove(carId);
+                if (ordinal != null) {
+                    unindex(ordinal);
+                    docs.set(ordinal, null);
+                    live.clear(ordinal);
+                    available.clear(ordinal);
+                    freeOrdinals.push(ordinal);
+                }
+            } finally {
+                rw.writeLock().unlock();
+            }
+        }
+
+        CarSearchResponse search(List<Term> terms, BigDecimal minPrice, BigDecimal maxPrice,
+                                 Boolean availableOnly, boolean withFacets) {
+            List<Hit> hits = new ArrayList<>();
+            Map<String, Map<String, Long>> facets = null;
+            rw.readLock().lock();
+            try {
+                BitSet candidates = (BitSet) live.clone();
+                if (availableOnly != null) {
+                    if (availableOnly) {
+                        candidates.and(available);
+                    } else {
+                        candidates.andNot(available);
+                    }
+                }
+                for (Term term : terms) {
+                    if (candidates.isEmpty()) {
+                        break;
+                    }
+                    BitSet matches = new BitSet();
+                    for (Field field : term.fields()) {
+                        matches.or(match(field, term.text(), candidates));
+                    }
+                    candidates.and(matches);
+                }
+
+                for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                    Doc doc = docs.get(i);
+                    BigDecimal price = doc.car().getPricePerDay();
+                    if ((minPrice != null && (price == null || price.compareTo(minPrice) < 0))
+                            || (maxPrice != null && (price == null || price.compareTo(maxPrice) > 0))) {
+                        candidates.clear(i);
+                        continue;
+                    }
+                    int score = score(doc, terms);
+                    if (score == 0 && !terms.isEmpty()) {
+                        candidates.clear(i);
+                        continue;
+                    }
+                    hits.add(new Hit(doc.car(), doc.car().getId(), score));
+                }
+
+                if (withFacets) {
+                    facets = countFacets(candidates);
+                }
+            } finally {
+                rw.readLock().unlock();
+            }
+
+            hits.sort(BY_RELEVANCE);
+            return CarSearchResponse.builder()
+                    .cars(hits.stream().map(Hit::car).toList())
+                    .facets(facets)
+                    .build();
+        }
+
+        // Caller holds the read lock; values are listed by descending count
+        private Map<String, Map<String, Long>> countFacets(BitSet results) {
+            Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+            for (Facet facet : Facet.values()) {
+                List<Map.Entry<String, Long>> counts = new ArrayList<>();
+                for (Map.Entry<String, BitSet> value : facetPostings.get(facet).entrySet()) {
+                    BitSet matching = (BitSet) value.getValue().clone();
+                    matching.and(results);
+                    int count = matching.cardinality();
+                    if (count > 0) {
+                        counts.add(Map.entry(value.getKey(), (long) count));
+                    }
+                }
+                counts.sort(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()));
+
+                Map<String, Long> values = new LinkedHashMap<>();
+                counts.forEach(count -> values.put(count.getKey(), count.getValue()));
+                facets.put(facet.key, Collections.unmodifiableMap(values));
+            }
+            return Collections.unmodifiableMap(facets);
+        }
+
+        // Superset of the cars whose field contains the text; exact containment is checked in score()
+        private BitSet match(Field field, String text, BitSet scope) {
+            Map<String, BitSet> fieldPostings = postings.get(field);
+            if (text.length() <= GRAM) {
+                BitSet posting = fieldPostings.get(text);
+                BitSet result = posting == null ? new BitSet() : (BitSet) posting.clone();
+                result.and(scope);
+                return result;
+            }
+
+            BitSet result = (BitSet) scope.clone();
+            for (int i = 0; i + GRAM <= text.length() && !result.isEmpty(); i++) {
+                BitSet posting = fieldPostings.get(text.substring(i, i + GRAM));
+                if (posting == null) {
+                    return new BitSet();
+                }
+                result.and(posting);
+            }
+            return result;
+        }
+
+        private void unindex(int ordinal) {
+            Doc previous = docs.get(ordinal);
+            if (previous == null) {
+                return;
+            }
+            for (Map.Entry<Facet, String> value : previous.facets().entrySet()) {
+                Map<String, BitSet> values = facetPostings.get(value.getKey());
+                BitSet posting = values.get(value.getValue());
+                if (posting != null) {
+                    posting.clear(ordinal);
+                    if (posting.isEmpty()) {
+                        values.remove(value.getValue());
+                    }
+                }
+            }
+            for (Map.Entry<Field, String> value : previous.values().entrySet()) {
+                Map<String, BitSet> fieldPostings = postings.get(value.getKey());
+                for (String gram : grams(value.getValue())) {
+                    BitSet posting = fieldPostings.get(gram);
+                    if (posting != null) {
+                        posting.clear(ordinal);
+                        if (posting.isEmpty()) {
+                            fieldPostings.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Zero when some term is not actually contained in any of its fields
+        private static int score(Doc doc, List<Term> terms) {
+            int score = 0;
+            for (Term term : terms) {
+                int termScore = 0;
+                for (Field field : term.fields()) {
+                    String value = doc.values().get(field);
+                    if (value == null || !value.contains(term.text())) {
+                        continue;
+                    }
+                    int quality = value.equals(term.text()) ? 3 : value.startsWith(term.text()) ? 2 : 1;
+                    termScore += field.weight * quality;
+                }
+                if (termScore == 0) {
+                    return 0;
+                }
+                score += termScore;
+            }
+            return score;
+        }
+
+        private static Map<Field, String> fieldValues(Car car) {
+            Map<Field, String> values = new EnumMap<>(Field.class);
+            put(values, Field.MAKE, car.getMake());
+            put(values, Field.MODEL, car.getModel());
+            put(values, Field.COLOR, car.getColor());
+            put(values, Field.TRANSMISSION, car.getTransmission());
+            put(values, Field.FUEL_TYPE, car.getFuelType());
+            return values;
+        }
+
+        private static Map<Facet, String> facetValues(Car car) {
+            Map<Facet, String> values = new EnumMap<>(Facet.class);
+            if (car.getMake() != null && !car.getMake().isBlank()) {
+                values.put(Facet.MAKE, car.getMake().trim());
+            }
+            if (car.getTransmission() != null && !car.getTransmission().isBlank()) {
+                values.put(Facet.TRANSMISSION, car.getTransmission().trim());
+            }
+            if (car.getFuelType() != null && !car.getFuelType().isBlank()) {
+                values.put(Facet.FUEL_TYPE, car.getFuelType().trim());
+            }
+            if (car.getSeats() != null) {
+                values.put(Facet.SEATS, car.getSeats().toString());
+            }
+            if (car.getPricePerDay() != null) {
+                values.put(Facet.PRICE, priceBucket(car.getPricePerDay()));
+            }
+            return values;
+        }
+
+        private static String priceBucket(BigDecimal price) {
+            BigDecimal lower = BigDecimal.ZERO;
+            for (BigDecimal upper : PRICE_BUCKETS) {
+                if (price.compareTo(upper) < 0) {
+                    return lower.toPlainString() + "-" + upper.toPlainString();
+                }
+                lower = upper;
+            }
+            return lower.toPlainString() + "+";
+        }
+
+        private static void put(Map<Field, String> values, Field field, String value) {
+            if (value != null && !value.isBlank()) {
+                values.put(field, value.toLowerCase(Locale.ROOT));
+            }
+        }
+
+        private static Set<String> grams(String value) {
+            Set<String> grams = new HashSet<>();
+            for (int length = 1; length <= GRAM; length++) {
+                for (int i = 0; i + length <= value.length(); i++) {
+                    grams.add(value.substring(i, i + length));
+                }
+            }
+            return grams;
+        }
+    }
+}
@@ -2,17 +2,26 @@ package com.carrental.service;
 
 import com.carrental.dto.request.CarRequest;
 import com.carrental.dto.response.CarResponse;
+import com.carrental.dto.response.CarSearchResponse;
+import com.carrental.dto.response.CursorPage;
+import com.carrental.event.CarCatalogChangedEvent;
 import com.carrental.exception.ResourceNotFoundException;
 import com.carrental.model.Car;
 import com.carrental.repository.CarRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -20,47 +29,72 @@ public class CarService {
 
     private final CarRepository carRepository;
     private final FileStorageService fileStorageService;
-
-    public List<CarResponse> getAllCars() {
-        return carRepository.findAll().stream()
-                .map(this::mapToCarResponse)
-                .collect(Collectors.toList());
+    private final ImageVariantService imageVariantService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CarSearchIndex carSearchIndex;
+
+    private static final Map<String, Function<String, ?>> SORT_KEYS = Map.of(
+            "id", Long::valueOf,
+            "pricePerDay", BigDecimal::new);
+
+    @Cacheable(cacheNames = CarCatalogCache.LISTINGS, key = "@carCatalogCache.catalogKey(#root.args)")
+    @Transactional(readOnly = true)
+    public CursorPage<CarResponse> getAllCars(String cursor, Integer size, String sort, String direction) {
+        KeysetPagination.PageRequest page = KeysetPagination.of(cursor, size, sort, direction, SORT_KEYS);
+        return page.toPage(page.scroll(carRepository), CarService::mapToCarResponse);
     }
 
+    @Cacheable(cacheNames = CarCatalogCache.LISTINGS, key = "@carCatalogCache.catalogKey('available')")
+    @Transactional(readOnly = true)
     public List<CarResponse> getAvailableCars() {
         return carRepository.findByAvailableTrue().stream()
-                .map(this::mapToCarResponse)
-                .collect(Collectors.toList());
+                .map(CarService::mapToCarResponse)
+                .toList();
     }
 
+    @Cacheable(cacheNames = CarCatalogCache.CARS, key = "@carCatalogCache.catalogKey(#id)")
+    @Transactional(readOnly = true)
     public CarResponse getCarById(Long id) {
         Car car = carRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Car not found with id: " + id));
         return mapToCarResponse(car);
     }
 
-    public List<CarResponse> searchCars(String make, String model, BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
-        return carRepository.searchCars(make, model, minPrice, maxPrice, available).stream()
-                .map(this::mapToCarResponse)
-                .collect(Collectors.toList());
+    @Cacheable(cacheNames = CarCatalogCache.VERSIONS, key = "@carCatalogCache.catalogKey(#id)")
+    @Transactional(readOnly = true)
+    public ResourceVersion getCarVersion(Long id) {
+        return carRepository.findVersionById(id)
+                .map(v -> ResourceVersion.of("car-" + id + "-" + v.getVersion(), v.getUpdatedAt()))
+                .orElseThrow(() -> new ResourceNotFoundException("Car not found with id: " + id));
+    }
+
+    @Cacheable(cacheNames = CarCatalogCache.SEARCHES, key = "@carCatalogCache.catalogKey(#root.args)")
+    public List<CarResponse> searchCars(String query, String make, String model,
+                                        BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
+        return carSearchIndex.search(query, make, model, minPrice, maxPrice, available);
+    }
+
+    @Cacheable(cacheNames = CarCatalogCache.FACETED_SEARCHES, key = "@carCatalogCache.catalogKey(#root.args)")
+    public CarSearchResponse searchCarsWithFacets(String query, String make, String model,
+                                                  BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
+        return carSearchIndex.searchWithFacets(query, make, model, minPrice, maxPrice, available);
+    }
+
+    @Cacheable(cacheNames = CarCatalogCache.AVAILABILITY, key = "@carCatalogCache.availabilityKey(#root.args)")
+    @Transactional(readOnly = true)
+    public Page<CarResponse> findCarsAvailableBetween(LocalDate startDate, LocalDate endDate, String make, String model,
+                                                      BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date must be before end date");
+        }
+        return carRepository.findAvailableBetween(startDate, endDate, make, model, minPrice, maxPrice, pageable)
+                .map(CarService::mapToCarResponse);
     }
 
     @Transactional
     public CarResponse createCar(CarRequest carRequest) {
-        Car car = Car.builder()
-                .make(carRequest.getMake())
-                .model(carRequest.getModel())
-                .year(carRequest.getYear())
-                .pricePerDay(carRequest.getPricePerDay())
-                .available(carRequest.isAvailable())
-                .licensePlate(carRequest.getLicensePlate())
-                .color(carRequest.getColor())
-                .transmission(carRequest.getTransmission())
-                .seats(carRequest.getSeats())
-                .fuelType(carRequest.getFuelType())
-                .build();
-
-        Car savedCar = carRepository.save(car);
+        Car savedCar = carRepository.save(toCar(carRequest));
+        eventPublisher.publishEvent(new CarCatalogChangedEvent(savedCar.getId()));
         return mapToCarResponse(savedCar);
     }
 
@@ -81,6 +115,7 @@ public class CarService {
         car.setFuelType(carRequest.getFuelType());
 
         Car updatedCar = carRepository.save(car);
+        eventPublisher.publishEvent(new CarCatalogChangedEvent(id));
         return mapToCarResponse(updatedCar);
     }
 
@@ -90,6 +125,7 @@ public class CarService {
             throw new ResourceNotFoundException("Car not found with id: " + id);
         }
         carRepository.deleteById(id);
+        eventPublisher.publishEvent(new CarCatalogChangedEvent(id));
     }
 
     @Transactional
@@ -98,12 +134,29 @@ public class CarService {
                 .orElseThrow(() -> new ResourceNotFoundException("Car not found with id: " + id));
 
         String fileName = fileStorageService.storeFile(file);
+        imageVariantService.generateVariants(fileName);
         car.setImageUrl(fileName);
         Car updatedCar = carRepository.save(car);
+        eventPublisher.publishEvent(new CarCatalogChangedEvent(id));
         return mapToCarResponse(updatedCar);
     }
 
-    private CarResponse mapToCarResponse(Car car) {
+    static Car toCar(CarRequest carRequest) {
+        return Car.builder()
+                .make(carRequest.getMake())
+                .model(carRequest.getModel())
+                .year(carRequest.getYear())
+                .pricePerDay(carRequest.getPricePerDay())
+                .available(carRequest.isAvailable())
+                .licensePlate(carRequest.getLicensePlate())
+                .color(carRequest.getColor())
+                .transmission(carRequest.getTransmission())
+                .seats(carRequest.getSeats())
+                .fuelType(carRequest.getFuelType())
+                .build();
+    }
+
+    static CarResponse mapToCarResponse(Car car) {
         return CarResponse.builder()
                 .id(car.getId())
                 .make(car.getMake())
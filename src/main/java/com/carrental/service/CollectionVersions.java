@@ -0,0 +1,152 @@
+package com.carrental.service;
+
+import com.carrental.event.BookingChangedEvent;
+import com.carrental.event.CarCatalogChangedEvent;
+import com.carrental.event.CarsImportedEvent;
+import com.carrental.event.PaymentChangedEvent;
+import com.carrental.model.CollectionCounter;
+import com.carrental.repository.BookingRepository;
+import com.carrental.repository.CollectionCounterRepository;
+import com.carrental.repository.CollectionVersion;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validators for the list endpoints. Each collection has a counter row that every transaction
+ * writing to it moves on just before it commits, so all nodes hand out the same tag for the same
+ * data and a tag costs a primary key lookup rather than a pass over the table. Lookups are kept
+ * for {@code app.collections.version-cache-ttl-ms}, and dropped as soon as a write made on this
+ * node commits, so only writes made on other nodes can take that long to show. No Last-Modified
+ * is given. Booking lists embed each booking's car, so their tag also covers the cars collection.
+ */
+@Component
+@Slf4j
+public class CollectionVersions {
+
+    public static final String CARS = "cars";
+    public static final String BOOKINGS = "bookings";
+    public static final String PAYMENTS = "payments";
+
+    private static final Map<String, List<String>> TABLES = Map.of(
+            CARS, List.of(CARS),
+            BOOKINGS, List.of(BOOKINGS, CARS),
+            PAYMENTS, List.of(PAYMENTS));
+
+    private final CollectionCounterRepository collectionCounterRepository;
+    private final BookingRepository bookingRepository;
+    private final Cache<String, Long> versions;
+
+    public CollectionVersions(CollectionCounterRepository collectionCounterRepository,
+                              BookingRepository bookingRepository,
+                              @Value("${app.collections.version-cache-ttl-ms:1000}") long cacheTtlMs) {
+        this.collectionCounterRepository = collectionCounterRepository;
+        this.bookingRepository = bookingRepository;
+        this.versions = Caffeine.newBuilder().expireAfterWrite(Duration.ofMillis(cacheTtlMs)).build();
+    }
+
+    // Databases created by ddl-auto have the table but not the rows the migration inserts
+    @PostConstruct
+    public void createCounters() {
+        for (String name : List.of(CARS, BOOKINGS, PAYMENTS)) {
+            if (!collectionCounterRepository.existsById(name)) {
+                try {
+                    collectionCounterRepository.save(new CollectionCounter(name, 0));
+                    log.info("Created collection counter {}", name);
+                } catch (DataIntegrityViolationException e) {
+                    // Another node created it first
+                }
+            }
+        }
+    }
+
+    public ResourceVersion current(String... collections) {
+        Set<String> tables = new LinkedHashSet<>();
+        for (String collection : collections) {
+            List<String> covered = TABLES.get(collection);
+            if (covered == null) {
+                throw new IllegalArgumentException("Unknown collection: " + collection);
+            }
+            tables.addAll(covered);
+        }
+
+        StringBuilder etag = new StringBuilder(String.join(".", collections)).append('-');
+        for (String table : tables) {
+            etag.append(version(table)).append('.');
+        }
+        etag.setLength(etag.length() - 1);
+        return ResourceVersion.of(etag.toString());
+    }
+
+    /** The tag of one user's bookings: only their rows, through the user_id index, and the cars they embed. */
+    public ResourceVersion currentForUser(String email) {
+        CollectionVersion bookings = bookingRepository.findCollectionVersionByUserEmail(email);
+        return ResourceVersion.of("my-bookings-" + bookings.getCount() + "." + bookings.getMaxId()
+                + "." + bookings.getVersionSum() + "-" + version(CARS));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCarCatalogChanged(CarCatalogChangedEvent event) {
+        increment(CARS);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCarsImported(CarsImportedEvent event) {
+        increment(CARS);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        increment(BOOKINGS);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onPaymentChanged(PaymentChangedEvent event) {
+        increment(PAYMENTS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void afterCarCatalogChanged(CarCatalogChangedEvent event) {
+        versions.invalidate(CARS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void afterCarsImported(CarsImportedEvent event) {
+        versions.invalidate(CARS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void afterBookingChanged(BookingChangedEvent event) {
+        versions.invalidate(BOOKINGS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void afterPaymentChanged(PaymentChangedEvent event) {
+        versions.invalidate(PAYMENTS);
+    }
+
+    // Loaded within the cache's per-key computation, so an invalidation never loses to a read made before it
+    private long version(String table) {
+        return versions.get(table, name -> collectionCounterRepository.findById(name)
+                .map(CollectionCounter::getVersion)
+                .orElse(0L));
+    }
+
+    private void increment(String table) {
+        if (collectionCounterRepository.increment(table) == 0) {
+            log.warn("No collection counter for {}; list ETags will not change", table);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.carrental.service;
+
+import java.util.function.Function;
+
+/**
+ * One column of a CSV export: its header and how to read the cell from a row.
+ */
+public record CsvColumn<E>(String header, Function<E, ?> value) {
+
+    public static <E> CsvColumn<E> of(String header, Function<E, ?> value) {
+        return new CsvColumn<>(header, value);
+    }
+}
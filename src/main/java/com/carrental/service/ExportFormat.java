@@ -0,0 +1,6 @@
+package com.carrental.service;
+
+public enum ExportFormat {
+    JSON_ARRAY,
+    NDJSON
+}
@@ -0,0 +1,181 @@
+package com.carrental.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Sends stored files with conditional GET and single byte-range support. On Tomcat the body goes
+ * out through sendfile: the handler only names the file and region, and the connector hands it to
+ * the kernel once the response is committed, so the bytes never enter the JVM. Elsewhere, and for
+ * files too small for that to pay off, the file channel is transferred to the response stream.
+ * Files kept off this node, in object storage, are streamed from the backend, range included.
+ * Small files served often come from memory instead, through {@link HotFileCache}.
+ */
+@Component
+@Slf4j
+public class FileResponseWriter {
+
+    // Request attributes of Tomcat's sendfile support (org.apache.catalina.Globals)
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final FileStorageService fileStorageService;
+    private final CacheControl immutableCacheControl;
+    private final long sendfileMinSize;
+
+    public FileResponseWriter(FileStorageService fileStorageService,
+                              @Value("${app.files.cache-max-age:365d}") Duration cacheMaxAge,
+                              @Value("${app.files.sendfile-min-size:48KB}") DataSize sendfileMinSize) {
+        this.fileStorageService = fileStorageService;
+        this.immutableCacheControl = CacheControl.maxAge(cacheMaxAge).cachePublic().immutable();
+        this.sendfileMinSize = sendfileMinSize.toBytes();
+    }
+
+    public void write(StoredFile file, ServletWebRequest webRequest) throws IOException {
+        HttpServletRequest request = webRequest.getRequest();
+        HttpServletResponse response = webRequest.getResponse();
+
+        // Files that may be replaced under the same name are revalidated on every use
+        CacheControl cacheControl = file.immutable() ? immutableCacheControl : CacheControl.noCache().cachePublic();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        if (webRequest.checkNotModified(file.sha256(), file.lastModified())) {
+            return;
+        }
+
+        response.setContentType(file.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(file).toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long end = file.size() - 1;
+        HttpRange range = requestedRange(request, file);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(file.size());
+                end = range.getRangeEnd(file.size());
+            } catch (IllegalArgumentException ex) {
+                end = -1;
+            }
+            if (end < start) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.size());
+                response.setContentLength(0);
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + file.size());
+        }
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        Optional<ByteBuffer> cached = fileStorageService.cachedContent(file);
+        if (cached.isPresent()) {
+            write(cached.get().limit((int) (end + 1)).position((int) start), response.getOutputStream());
+            return;
+        }
+        Path path = fileStorageService.localPath(file).orElse(null);
+        if (path == null) {
+            try (InputStream in = fileStorageService.openFile(file, start, length)) {
+                in.transferTo(response.getOutputStream());
+            }
+            return;
+        }
+        if (length >= sendfileMinSize && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    throw new IOException("File " + file.name() + " ended before byte " + (end + 1));
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    // Copied out through a small heap array, the response stream being behind Spring Security's wrapper
+    private static void write(ByteBuffer content, OutputStream out) throws IOException {
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (content.hasRemaining()) {
+            channel.write(content);
+        }
+    }
+
+    /**
+     * The single range to send, or null for the whole file. Multi-range requests are answered
+     * in full, as are malformed ones and those whose If-Range no longer matches the file.
+     */
+    private static HttpRange requestedRange(HttpServletRequest request, StoredFile file) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !ifRangeMatches(request, file)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException ex) {
+            log.debug("Ignoring malformed range {}", header);
+            return null;
+        }
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, StoredFile file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals("\"" + file.sha256() + "\"");
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == file.lastModified() / 1000 * 1000;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    // Images display in place; anything else is downloaded so uploads cannot run as pages of this site
+    private static ContentDisposition contentDisposition(StoredFile file) {
+        MediaType mediaType = MediaType.parseMediaType(file.contentType());
+        boolean inline = "image".equals(mediaType.getType()) && !"svg+xml".equals(mediaType.getSubtype());
+        return (inline ? ContentDisposition.inline() : ContentDisposition.attachment()).filename(file.name()).build();
+    }
+}
@@ -1,39 +1,135 @@
 package com.carrental.service;
 
 import com.carrental.exception.FileStorageException;
+import com.carrental.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
+/**
+ * Content-addressed file storage. Each distinct content is kept once as a blob under
+ * {@code blobs/ab/cd/<sha256>}; the names handed out at upload are references to a blob, kept
+ * as properties records under {@code refs/}. Blobs count their references and are removed with
+ * the last one, together with the image variants made from them. Where all of it lives is up to
+ * the {@link StorageBackend}; {@code file.upload-dir} only stages uploads on their way in.
+ */
 @Service
 @Slf4j
 public class FileStorageService {
 
+    private static final String REFS_DIR = "refs";
+    private static final String BLOBS_DIR = "blobs";
+
+    // Uploads are copied here while they are hashed, on the same file system as a local backend's blobs
+    private static final String INCOMING_DIR = "incoming";
+
+    // Variant references, one directory per variant, named after the SHA-256 of the blob they were made from
+    private static final String VARIANTS_DIR = "variants";
+
+    // Held while a blob's reference count changes, one per blob, by whichever node is changing it
+    private static final String LOCKS_DIR = "locks";
+    private static final long LOCK_WAIT_MS = 10_000;
+    private static final long LOCK_RETRY_MS = 20;
+
+    // A lock this old was left behind by a node that died holding it
+    private static final long LOCK_STALE_MS = 60_000;
+
+    // Names produced by storeFile: a random UUID plus the original extension
+    private static final Pattern GENERATED_NAME =
+            Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}(\\.[A-Za-z0-9]+)?");
+
+    private final StorageBackend storageBackend;
+    private final HotFileCache hotFileCache;
     private final Path fileStorageLocation;
+    private final Path incomingLocation;
+    private final Map<String, StoredFile> references;
+
+    // Threads of this node queue here rather than polling the backend's lock for the same blob
+    private final Object[] blobLocks = new Object[64];
+    private final Object adoptLock = new Object();
 
-    public FileStorageService(@Value("${file.upload-dir}") String uploadDir) {
+    public FileStorageService(StorageBackend storageBackend,
+                              HotFileCache hotFileCache,
+                              @Value("${file.upload-dir}") String uploadDir,
+                              @Value("${app.files.metadata-cache.max-entries:10000}") int metadataCacheSize) {
+        this.storageBackend = storageBackend;
+        this.hotFileCache = hotFileCache;
         this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.incomingLocation = this.fileStorageLocation.resolve(INCOMING_DIR);
+        this.references = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredFile> eldest) {
+                return size() > metadataCacheSize;
+            }
+        };
+        for (int i = 0; i < blobLocks.length; i++) {
+            blobLocks[i] = new Object();
+        }
 
         try {
-            Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.incomingLocation);
             log.info("Created file storage directory: {}", this.fileStorageLocation);
         } catch (Exception ex) {
             throw new FileStorageException("Could not create the directory where the uploaded files will be stored.", ex);
         }
     }
 
+    /**
+     * Moves files left at the top of the upload directory, where uploads used to be stored,
+     * into the blob store. Files with the same content end up sharing one blob.
+     */
+    @PostConstruct
+    public void adoptLooseFiles() {
+        int adopted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(fileStorageLocation, Files::isRegularFile)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (!fileName.startsWith(".") && adopt(fileName) != null) {
+                    adopted++;
+                }
+            }
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not move stored files out of " + fileStorageLocation, ex);
+        }
+        if (adopted > 0) {
+            log.info("Moved {} stored files out of {} into the blob store", adopted, fileStorageLocation);
+        }
+    }
+
     public String storeFile(MultipartFile file) {
         // Normalize file name
         String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
@@ -52,9 +148,18 @@ public class FileStorageService {
             }
             fileName = UUID.randomUUID().toString() + fileExtension;
 
-            // Copy file to the target location (Replacing existing file with the same name)
-            Path targetLocation = this.fileStorageLocation.resolve(fileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            // Copy file aside, hashing the content on the way, then file it under its hash
+            Path incoming = Files.createTempFile(incomingLocation, null, ".tmp");
+            try {
+                MessageDigest digest = sha256();
+                try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                    Files.copy(in, incoming, StandardCopyOption.REPLACE_EXISTING);
+                }
+                reference(refKey(fileName), fileName, contentTypeOf(fileName), incoming,
+                        HexFormat.of().formatHex(digest.digest()), System.currentTimeMillis(), true);
+            } finally {
+                Files.deleteIfExists(incoming);
+            }
 
             log.info("Stored file: {} (original: {})", fileName, originalFileName);
             return fileName;
@@ -63,26 +168,104 @@ public class FileStorageService {
         }
     }
 
-    public Resource loadFileAsResource(String fileName) {
+    /** Looks up a stored file by the name it was given at upload. */
+    public StoredFile loadFile(String fileName) {
+        String refKey = refKey(fileName);
         try {
-            Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-            if (resource.exists()) {
-                return resource;
-            } else {
+            StoredFile stored = readReference(refKey, GENERATED_NAME.matcher(fileName).matches());
+            if (stored == null) {
+                // Left at the top of the directory after startup, e.g. copied in by hand
+                stored = adopt(fileName);
+            }
+            if (stored == null) {
                 log.warn("File not found: {}", fileName);
-                throw new FileStorageException("File not found " + fileName);
+                throw new ResourceNotFoundException("File not found " + fileName);
             }
-        } catch (MalformedURLException ex) {
-            throw new FileStorageException("File not found " + fileName, ex);
+            return stored;
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not read file " + fileName, ex);
+        }
+    }
+
+    /** Streams {@code length} bytes of a stored file's content, starting at {@code offset}. */
+    public InputStream openFile(StoredFile file, long offset, long length) throws IOException {
+        try {
+            return storageBackend.open(file.key(), offset, length);
+        } catch (NoSuchFileException ex) {
+            throw forget(file);
+        }
+    }
+
+    /** The whole content of a small, often requested file, from memory. */
+    public Optional<ByteBuffer> cachedContent(StoredFile file) throws IOException {
+        return hotFileCache.get(file, target -> {
+            Optional<Path> path = localPath(file);
+            try (ReadableByteChannel channel = path.isPresent()
+                    ? FileChannel.open(path.get(), StandardOpenOption.READ)
+                    : Channels.newChannel(openFile(file, 0, file.size()))) {
+                while (target.hasRemaining() && channel.read(target) != -1) {
+                    // Keep reading until the buffer is full or the file ends
+                }
+            }
+        }, () -> {
+            if (!storageBackend.exists(file.key())) {
+                throw forget(file);
+            }
+        });
+    }
+
+    // Deleted through another node since this one cached the reference or the content
+    private ResourceNotFoundException forget(StoredFile file) {
+        synchronized (references) {
+            references.values().removeIf(stored -> stored.key().equals(file.key()));
+        }
+        hotFileCache.evict(file.sha256());
+        return new ResourceNotFoundException("File not found " + file.name());
+    }
+
+    /** The file holding a stored file's content, when the backend keeps one on this node. */
+    public Optional<Path> localPath(StoredFile file) {
+        return storageBackend.localPath(file.key());
+    }
+
+    /**
+     * The stored variant of {@code source}, if one has been generated. It is cached by clients
+     * under the source's URL, so it is only immutable when the source is.
+     */
+    public Optional<StoredFile> findVariant(StoredFile source, ImageVariant variant) {
+        try {
+            return Optional.ofNullable(readReference(variantKey(source.sha256(), variant), source.immutable()));
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not read " + variant + " variant of file " + source.name(), ex);
+        }
+    }
+
+    public StoredFile storeVariant(StoredFile source, ImageVariant variant, String extension, byte[] content) {
+        String baseName = StringUtils.stripFilenameExtension(source.name());
+        String name = baseName + "-" + variant.parameter() + "." + extension;
+        try {
+            Path incoming = Files.createTempFile(incomingLocation, null, ".tmp");
+            try {
+                Files.write(incoming, content);
+                return reference(variantKey(source.sha256(), variant), name, contentTypeOf(name), incoming,
+                        HexFormat.of().formatHex(sha256().digest(content)), System.currentTimeMillis(),
+                        source.immutable());
+            } finally {
+                Files.deleteIfExists(incoming);
+            }
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not store " + variant + " variant of file " + source.name(), ex);
         }
     }
 
     public void deleteFile(String fileName) {
         try {
-            Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-            boolean deleted = Files.deleteIfExists(filePath);
-            if (deleted) {
+            String refKey = refKey(fileName);
+            StoredFile stored = readReference(refKey, false);
+            if (stored != null) {
+                unreference(refKey, stored);
+                log.info("Deleted file: {}", fileName);
+            } else if (Files.deleteIfExists(fileStorageLocation.resolve(fileName))) {
                 log.info("Deleted file: {}", fileName);
             } else {
                 log.warn("File not found for deletion: {}", fileName);
@@ -97,7 +280,250 @@ public class FileStorageService {
         if (fileName == null || fileName.isEmpty()) {
             return false;
         }
-        Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-        return Files.exists(filePath);
+        try {
+            return storageBackend.exists(refKey(fileName)) || Files.exists(fileStorageLocation.resolve(fileName));
+        } catch (ResourceNotFoundException ex) {
+            return false;
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not look up file " + fileName, ex);
+        }
+    }
+
+    // Files the service used to write straight into the upload directory become references like any upload
+    private StoredFile adopt(String fileName) throws IOException {
+        String refKey = refKey(fileName);
+        Path loose = fileStorageLocation.resolve(fileName);
+        synchronized (adoptLock) {
+            StoredFile stored = readReference(refKey, GENERATED_NAME.matcher(fileName).matches());
+            if (stored != null || !Files.isRegularFile(loose)) {
+                return stored;
+            }
+            stored = reference(refKey, fileName, contentTypeOf(fileName), loose, hash(loose),
+                    Files.getLastModifiedTime(loose).toMillis(), GENERATED_NAME.matcher(fileName).matches());
+            // Still there when the content was already stored, or was copied rather than moved
+            Files.deleteIfExists(loose);
+            log.info("Moved stored file {} into blob {}", fileName, stored.sha256());
+            return stored;
+        }
+    }
+
+    /**
+     * Puts {@code content} in as the blob for its hash, unless that blob exists already, and
+     * points {@code refKey} at it. The count goes up before the blob and the reference are
+     * written: a positive count keeps other nodes from deleting the blob, so it can be uploaded
+     * without holding the lock, and a failure after the reference leaves a blob that is never
+     * removed rather than a dangling reference.
+     */
+    private StoredFile reference(String refKey, String name, String contentType, Path content, String sha256,
+                                 long created, boolean immutable) throws IOException {
+        String blobKey = blobKey(sha256);
+        long size = Files.size(content);
+        StoredFile previous = readReference(refKey, immutable);
+        long count = updateReferenceCount(sha256, 1);
+        try {
+            if (!storageBackend.exists(blobKey)) {
+                storageBackend.put(blobKey, content);
+            }
+        } catch (IOException | RuntimeException ex) {
+            updateReferenceCount(sha256, -1);
+            throw ex;
+        }
+        if (count > 1) {
+            log.debug("Content of {} is already stored as blob {} ({} references)", name, sha256, count);
+        }
+
+        StoredFile stored = new StoredFile(name, blobKey, contentType, sha256, size, created, immutable);
+        Properties properties = new Properties();
+        properties.setProperty("name", stored.name());
+        properties.setProperty("content-type", stored.contentType());
+        properties.setProperty("sha256", stored.sha256());
+        properties.setProperty("size", Long.toString(stored.size()));
+        properties.setProperty("created", Long.toString(stored.lastModified()));
+        StringWriter writer = new StringWriter();
+        properties.store(writer, null);
+        storageBackend.put(refKey, writer.toString().getBytes(StandardCharsets.UTF_8));
+
+        synchronized (references) {
+            references.put(refKey, stored);
+        }
+        if (previous != null) {
+            release(previous.sha256());
+        }
+        return stored;
+    }
+
+    // The reference goes before the count comes down, mirroring reference()
+    private void unreference(String refKey, StoredFile stored) throws IOException {
+        synchronized (references) {
+            references.remove(refKey);
+        }
+        storageBackend.delete(refKey);
+        release(stored.sha256());
+    }
+
+    private void release(String sha256) throws IOException {
+        if (updateReferenceCount(sha256, -1) > 0) {
+            return;
+        }
+        // Variants belong to the blob they were made from and go with it
+        for (ImageVariant variant : ImageVariant.values()) {
+            String variantKey = variantKey(sha256, variant);
+            StoredFile stored = readReference(variantKey, false);
+            if (stored != null) {
+                unreference(variantKey, stored);
+            }
+        }
+    }
+
+    /**
+     * Adjusts the reference count of a blob, deleting the blob once the count reaches zero. It
+     * happens while holding the blob's lock, a record created only if absent, so a blob is never
+     * removed while another node is pointing a name at it.
+     */
+    private long updateReferenceCount(String sha256, int delta) throws IOException {
+        String blobKey = blobKey(sha256);
+        String countKey = blobKey + ".refs";
+        String lockKey = LOCKS_DIR + "/" + sha256;
+        synchronized (blobLocks[Math.floorMod(sha256.hashCode(), blobLocks.length)]) {
+            byte[] lock = acquire(lockKey);
+            try {
+                long count = storageBackend.read(countKey)
+                        .map(bytes -> Long.parseLong(new String(bytes, StandardCharsets.US_ASCII).trim()))
+                        .orElse(0L);
+                count = Math.max(0, count + delta);
+                if (count == 0) {
+                    storageBackend.delete(blobKey);
+                    storageBackend.delete(countKey);
+                    hotFileCache.evict(sha256);
+                    log.info("Deleted blob {}", sha256);
+                } else {
+                    storageBackend.put(countKey, Long.toString(count).getBytes(StandardCharsets.US_ASCII));
+                }
+                return count;
+            } finally {
+                if (!deleteLock(lockKey, lock)) {
+                    log.warn("Lock {} was broken by another node while held by this one", lockKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a blob's lock, returning the record written for it: the time it was taken and a
+     * token of its own, so a holder only ever deletes its own lock.
+     */
+    private byte[] acquire(String lockKey) throws IOException {
+        long deadline = System.currentTimeMillis() + LOCK_WAIT_MS;
+        while (true) {
+            byte[] lock = (System.currentTimeMillis() + " " + UUID.randomUUID())
+                    .getBytes(StandardCharsets.US_ASCII);
+            if (storageBackend.putIfAbsent(lockKey, lock)) {
+                return lock;
+            }
+            Optional<byte[]> held = storageBackend.read(lockKey);
+            long taken = held
+                    .map(bytes -> new String(bytes, StandardCharsets.US_ASCII).trim().split(" ")[0])
+                    .filter(value -> value.matches("\\d+"))
+                    .map(Long::parseLong)
+                    .orElse(Long.MAX_VALUE);
+            if (taken < System.currentTimeMillis() - LOCK_STALE_MS) {
+                // Only the record judged stale goes; one written since by a live holder stays
+                if (deleteLock(lockKey, held.get())) {
+                    log.warn("Broke lock {}, taken at {} and never released", lockKey, taken);
+                }
+                continue;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Timed out waiting for lock " + lockKey);
+            }
+            try {
+                Thread.sleep(LOCK_RETRY_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for lock " + lockKey);
+            }
+        }
+    }
+
+    // Deletes the lock only while it still holds the given record
+    private boolean deleteLock(String lockKey, byte[] lock) throws IOException {
+        Optional<byte[]> held = storageBackend.read(lockKey);
+        if (held.isEmpty() || !Arrays.equals(held.get(), lock)) {
+            return false;
+        }
+        storageBackend.delete(lockKey);
+        return true;
+    }
+
+    private StoredFile readReference(String refKey, boolean immutable) throws IOException {
+        synchronized (references) {
+            StoredFile stored = references.get(refKey);
+            if (stored != null) {
+                return stored.withImmutable(immutable);
+            }
+        }
+        Optional<byte[]> content = storageBackend.read(refKey);
+        if (content.isEmpty()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try {
+            properties.load(new ByteArrayInputStream(content.get()));
+            String sha256 = properties.getProperty("sha256");
+            StoredFile stored = new StoredFile(properties.getProperty("name"), blobKey(sha256),
+                    properties.getProperty("content-type"), sha256, Long.parseLong(properties.getProperty("size")),
+                    Long.parseLong(properties.getProperty("created")), immutable);
+            synchronized (references) {
+                references.put(refKey, stored);
+            }
+            return stored;
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Ignoring unreadable file reference: {}", refKey, ex);
+            return null;
+        }
+    }
+
+    // Only plain names resolve; anything that could reach outside refs/ is reported as not found
+    private static String refKey(String fileName) {
+        if (fileName.isEmpty() || fileName.startsWith(".") || fileName.contains("/") || fileName.contains("\\")) {
+            throw new ResourceNotFoundException("File not found " + fileName);
+        }
+        return REFS_DIR + "/" + fileName + ".properties";
+    }
+
+    private static String blobKey(String sha256) {
+        return BLOBS_DIR + "/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+    }
+
+    private static String variantKey(String sourceSha256, ImageVariant variant) {
+        return VARIANTS_DIR + "/" + variant.parameter() + "/" + sourceSha256 + ".properties";
+    }
+
+    // The MIME type comes from the stored name, which the server picked, never from the client's header
+    private static String contentTypeOf(String fileName) {
+        return MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+    }
+
+    private static String hash(Path filePath) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
     }
 }
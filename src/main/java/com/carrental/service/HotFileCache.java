@@ -0,0 +1,124 @@
+package com.carrental.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The content of small, frequently served files held in direct memory, keyed by SHA-256, so the
+ * hottest images go out without touching the disk or the object store. Caffeine decides what
+ * stays within the byte budget by both recency and frequency, and a file is only read in on its
+ * second request, so one-off downloads never displace the regulars. The bytes live outside the
+ * heap and add nothing to garbage collection; an evicted buffer's memory is returned when its
+ * small heap wrapper is collected. Blobs never change under their hash, but another node may
+ * delete one, so a cached file is only served while its blob is confirmed to still be stored,
+ * a check made again once {@code app.files.hot-cache.revalidate-after} has passed since the last.
+ */
+@Component
+public class HotFileCache {
+
+    @FunctionalInterface
+    interface Loader {
+        void load(ByteBuffer target) throws IOException;
+    }
+
+    // Confirms a cached file is still stored, throwing when it is not
+    @FunctionalInterface
+    interface Revalidator {
+        void revalidate() throws IOException;
+    }
+
+    private final Cache<String, ByteBuffer> contents;
+
+    // Hashes requested recently, whether or not their content is cached yet
+    private final Cache<String, Boolean> requested;
+
+    // Hashes whose blob was seen in storage within the revalidation interval
+    private final Cache<String, Boolean> validated;
+
+    private final long maxFileSize;
+
+    public HotFileCache(@Value("${app.files.hot-cache.capacity:64MB}") DataSize capacity,
+                        @Value("${app.files.hot-cache.max-file-size:512KB}") DataSize maxFileSize,
+                        @Value("${app.files.hot-cache.revalidate-after:5s}") Duration revalidateAfter,
+                        MeterRegistry meterRegistry) {
+        this.contents = Caffeine.newBuilder()
+                .maximumWeight(capacity.toBytes())
+                .weigher((String sha256, ByteBuffer content) -> content.capacity())
+                .recordStats()
+                // Evicting only drops a reference, so it is done inline and the byte gauge stays exact
+                .executor(Runnable::run)
+                .build();
+        this.requested = Caffeine.newBuilder().maximumSize(10_000).build();
+        this.validated = Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(revalidateAfter).build();
+        this.maxFileSize = Math.min(maxFileSize.toBytes(), capacity.toBytes());
+
+        CaffeineCacheMetrics.monitor(meterRegistry, contents, "hotFiles");
+        Gauge.builder("files.hot-cache.bytes", contents,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("Bytes of file content held in direct memory")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("files.hot-cache.hit.ratio", contents, c -> c.stats().hitRate())
+                .description("Share of file requests answered from memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A read-only view of the content of {@code file}, read in through {@code loader} when it is
+     * small enough and has been asked for before. Empty when it is served some other way. Content
+     * held longer than the revalidation interval is only returned once {@code revalidator} passes.
+     */
+    Optional<ByteBuffer> get(StoredFile file, Loader loader, Revalidator revalidator) throws IOException {
+        if (file.size() > maxFileSize || file.size() == 0) {
+            return Optional.empty();
+        }
+        ByteBuffer cached;
+        if (requested.asMap().putIfAbsent(file.sha256(), Boolean.TRUE) == null) {
+            cached = contents.getIfPresent(file.sha256());
+        } else {
+            try {
+                cached = contents.get(file.sha256(), sha256 -> load(file, loader));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        }
+        if (cached != null && validated.getIfPresent(file.sha256()) == null) {
+            revalidator.revalidate();
+            validated.put(file.sha256(), Boolean.TRUE);
+        }
+        return Optional.ofNullable(cached).map(ByteBuffer::asReadOnlyBuffer);
+    }
+
+    void evict(String sha256) {
+        contents.invalidate(sha256);
+        requested.invalidate(sha256);
+        validated.invalidate(sha256);
+    }
+
+    private ByteBuffer load(StoredFile file, Loader loader) {
+        ByteBuffer content = ByteBuffer.allocateDirect((int) file.size());
+        try {
+            loader.load(content);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (content.hasRemaining()) {
+            throw new UncheckedIOException(new IOException("File " + file.name() + " ended before byte " + file.size()));
+        }
+        // Just read from storage, so it needs no check until the interval has passed
+        validated.put(file.sha256(), Boolean.TRUE);
+        return content.flip();
+    }
+}
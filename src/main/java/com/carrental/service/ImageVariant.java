@@ -0,0 +1,44 @@
+package com.carrental.service;
+
+import java.util.Locale;
+
+/**
+ * Resized copies kept for every uploaded image, each bounded by its longest edge and
+ * recompressed at its own JPEG quality. Images with transparency are kept as PNG instead.
+ */
+public enum ImageVariant {
+
+    THUMB(200, 0.75f),
+    CARD(640, 0.80f),
+    FULL(1600, 0.85f);
+
+    private final int maxDimension;
+    private final float jpegQuality;
+
+    ImageVariant(int maxDimension, float jpegQuality) {
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+    }
+
+    public int maxDimension() {
+        return maxDimension;
+    }
+
+    public float jpegQuality() {
+        return jpegQuality;
+    }
+
+    // The value of the ?size= parameter and the name of the variant's directory
+    public String parameter() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static ImageVariant fromParameter(String parameter) {
+        for (ImageVariant variant : values()) {
+            if (variant.parameter().equalsIgnoreCase(parameter)) {
+                return variant;
+            }
+        }
+        throw new IllegalArgumentException("Unknown image size '" + parameter + "', expected one of thumb, card, full");
+    }
+}
@@ -0,0 +1,410 @@
+package com.carrental.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Produces the {@link ImageVariant}s of uploaded images with ImageIO on a dedicated, bounded
+ * pool. Uploads queue every variant right away; a request for a variant that does not exist
+ * yet (files uploaded before variants were kept, or a full queue at upload time) generates it
+ * and waits a bounded time, falling back to the original if it is not ready. Each source is
+ * decoded once, subsampled while decoding when it is much larger than the biggest variant asked
+ * for, and the smaller variants are scaled down from the bigger ones.
+ */
+@Service
+@Slf4j
+public class ImageVariantService {
+
+    // Formats decoded here; GIFs are left alone so animations survive
+    private static final Set<String> RESIZABLE_TYPES = Set.of("image/jpeg", "image/png", "image/bmp");
+
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+    private final FileStorageService fileStorageService;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMs;
+    private final long maxPixels;
+
+    // One generation per source and variant at a time; later callers wait on the running one
+    private final Map<String, CompletableFuture<StoredFile>> inFlight = new ConcurrentHashMap<>();
+
+    // Sources that could not be decoded, so requests for their variants stop retrying
+    private final Map<String, Boolean> undecodable;
+
+    private final Timer generationTimer;
+    private final Counter rejectedCounter;
+
+    public ImageVariantService(FileStorageService fileStorageService,
+                               @Value("${app.images.variants.threads:2}") int threads,
+                               @Value("${app.images.variants.queue-capacity:100}") int queueCapacity,
+                               @Value("${app.images.variants.max-wait-ms:3000}") long maxWaitMs,
+                               @Value("${app.images.max-pixels:40000000}") long maxPixels,
+                               MeterRegistry meterRegistry) {
+        this.fileStorageService = fileStorageService;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("image-variants-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.maxWaitMs = maxWaitMs;
+        this.maxPixels = maxPixels;
+        this.undecodable = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > 1000;
+            }
+        };
+
+        this.generationTimer = Timer.builder("images.variants.generate")
+                .description("Time spent decoding an image and writing its variants").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("images.variants.rejected")
+                .description("Variant generations dropped because the pool was saturated").register(meterRegistry);
+        Gauge.builder("images.variants.queue.depth", executor, e -> e.getQueue().size())
+                .description("Variant generations waiting for a thread").register(meterRegistry);
+    }
+
+    /** Queues every missing variant of a freshly stored file without waiting for them. */
+    public void generateVariants(String fileName) {
+        StoredFile source = fileStorageService.loadFile(fileName);
+        if (!isResizable(source)) {
+            return;
+        }
+        Map<ImageVariant, CompletableFuture<StoredFile>> claimed = new EnumMap<>(ImageVariant.class);
+        for (ImageVariant variant : ImageVariant.values()) {
+            // Content uploaded before under another name already has its variants
+            if (fileStorageService.findVariant(source, variant).isPresent()) {
+                continue;
+            }
+            CompletableFuture<StoredFile> future = new CompletableFuture<>();
+            if (inFlight.putIfAbsent(key(source, variant), future) == null) {
+                claimed.put(variant, future);
+            }
+        }
+        submit(source, claimed);
+    }
+
+    /**
+     * The requested variant of a stored file, generated now if it does not exist yet. Falls back
+     * to the original for files that are not resizable images and, without marking it immutable,
+     * when the variant cannot be produced in time.
+     */
+    public StoredFile resolve(String fileName, ImageVariant variant) {
+        StoredFile source = fileStorageService.loadFile(fileName);
+        if (!isResizable(source)) {
+            return source;
+        }
+        StoredFile existing = fileStorageService.findVariant(source, variant).orElse(null);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<StoredFile> future = new CompletableFuture<>();
+        CompletableFuture<StoredFile> running = inFlight.putIfAbsent(key(source, variant), future);
+        if (running == null) {
+            running = future;
+            submit(source, Map.of(variant, future));
+        }
+        try {
+            StoredFile generated = running.get(maxWaitMs, TimeUnit.MILLISECONDS);
+            if (generated != null) {
+                return generated.withImmutable(source.immutable());
+            }
+        } catch (TimeoutException e) {
+            log.debug("{} variant of {} not ready after {} ms, sending the original", variant, fileName, maxWaitMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Could not generate {} variant of {}", variant, fileName, e.getCause());
+        }
+        // A source that failed to decode is served as-is for good; otherwise the variant may still come
+        return isResizable(source) ? source.withImmutable(false) : source;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private boolean isResizable(StoredFile source) {
+        if (!RESIZABLE_TYPES.contains(source.contentType())) {
+            return false;
+        }
+        synchronized (undecodable) {
+            return !undecodable.containsKey(source.sha256());
+        }
+    }
+
+    private void submit(StoredFile source, Map<ImageVariant, CompletableFuture<StoredFile>> variants) {
+        if (variants.isEmpty()) {
+            return;
+        }
+        try {
+            executor.execute(() -> generationTimer.record(() -> generate(source, variants)));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Image variant pool is saturated, {} will get its variants on first request", source.name());
+            release(source, variants);
+        }
+    }
+
+    private void generate(StoredFile source, Map<ImageVariant, CompletableFuture<StoredFile>> variants) {
+        try {
+            ImageVariant largest = variants.keySet().stream()
+                    .max(Comparator.comparingInt(ImageVariant::maxDimension)).orElseThrow();
+            // Read in full before decoding, so a storage failure is not mistaken for a bad image
+            byte[] original;
+            try (InputStream content = fileStorageService.openFile(source, 0, source.size())) {
+                original = content.readAllBytes();
+            }
+            BufferedImage image;
+            try {
+                image = decode(original, largest.maxDimension());
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not decode {}, serving it without variants: {}", source.name(), e.getMessage());
+                synchronized (undecodable) {
+                    undecodable.put(source.sha256(), Boolean.TRUE);
+                }
+                return;
+            }
+            boolean alpha = image.getColorModel().hasAlpha();
+            // Largest first, each one scaled from the previous: less work and smoother results than from the source
+            for (ImageVariant variant : variants.keySet().stream()
+                    .sorted(Comparator.comparingInt(ImageVariant::maxDimension).reversed()).toList()) {
+                image = scale(image, variant.maxDimension(), alpha);
+                byte[] content = alpha ? encodePng(image) : encodeJpeg(image, variant.jpegQuality());
+                StoredFile stored = fileStorageService.storeVariant(source, variant, alpha ? "png" : "jpg", content);
+                variants.get(variant).complete(stored);
+            }
+            log.debug("Generated {} variants of {}", variants.keySet(), source.name());
+        } catch (IOException | RuntimeException e) {
+            // Storage failures; the next request for a missing variant tries again
+            log.warn("Could not generate variants of {}: {}", source.name(), e.getMessage());
+        } finally {
+            release(source, variants);
+        }
+    }
+
+    private void release(StoredFile source, Map<ImageVariant, CompletableFuture<StoredFile>> variants) {
+        variants.forEach((variant, future) -> {
+            inFlight.remove(key(source, variant), future);
+            future.complete(null);
+        });
+    }
+
+    // Held in memory rather than ImageIO's default temp file; uploads are bounded by the multipart limit
+    private BufferedImage decode(byte[] content, int targetDimension) throws IOException {
+        try (ImageInputStream in = new MemoryCacheImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for this format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, false);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                // Checked before decoding: a small upload can still declare a huge raster
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image is " + width + "x" + height + ", above the " + maxPixels + " pixel limit");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep at least twice the target size so the final downscale still has detail to average
+                int subsampling = Math.max(1, Math.max(width, height) / (2 * targetDimension));
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+                return orient(image, exifOrientation(reader));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halves the image until it is within two of the target, then draws the last step; bilinear in one
+    // big step skips most source pixels and looks grainy
+    private static BufferedImage scale(BufferedImage image, int maxDimension, boolean alpha) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double ratio = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        if (image.getType() == type && width == targetWidth && height == targetHeight) {
+            return image;
+        }
+        BufferedImage current = image;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height, type, null);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height, int type, AffineTransform transform) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (transform != null) {
+                graphics.drawImage(image, transform, null);
+            } else {
+                graphics.drawImage(image, 0, 0, width, height, null);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // In-memory stream: ImageIO's default would spool through a temp file
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            ImageIO.write(image, "png", stream);
+        }
+        return out.toByteArray();
+    }
+
+    // Variants carry no metadata, so the camera's EXIF rotation is applied to the pixels instead
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation < 2 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = orientation >= 5;
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> transform.scale(-1, 1);
+            case 3 -> transform.rotate(Math.PI);
+            case 4 -> transform.scale(1, -1);
+            case 5 -> { transform.rotate(Math.PI / 2); transform.scale(1, -1); }
+            case 6 -> transform.rotate(Math.PI / 2);
+            case 7 -> { transform.rotate(-Math.PI / 2); transform.scale(1, -1); }
+            default -> transform.rotate(-Math.PI / 2);
+        }
+        // Move the rotated or mirrored image back into the positive quadrant
+        Rectangle2D bounds = transform.createTransformedShape(new Rectangle(0, 0, width, height)).getBounds2D();
+        AffineTransform placed = AffineTransform.getTranslateInstance(-Math.round(bounds.getX()), -Math.round(bounds.getY()));
+        placed.concatenate(transform);
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        return draw(image, swap ? height : width, swap ? width : height, type, placed);
+    }
+
+    // Orientation tag of the JPEG's EXIF block (APP1), or 1 when there is none
+    private static int exifOrientation(ImageReader reader) {
+        try {
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            if (metadata == null || !"javax_imageio_jpeg_image_1.0".equals(metadata.getNativeMetadataFormatName())) {
+                return 1;
+            }
+            Node markers = ((IIOMetadataNode) metadata.getAsTree("javax_imageio_jpeg_image_1.0"))
+                    .getElementsByTagName("markerSequence").item(0);
+            for (Node marker = markers == null ? null : markers.getFirstChild(); marker != null;
+                 marker = marker.getNextSibling()) {
+                if ("unknown".equals(marker.getNodeName())
+                        && "225".equals(((IIOMetadataNode) marker).getAttribute("MarkerTag"))
+                        && ((IIOMetadataNode) marker).getUserObject() instanceof byte[] data) {
+                    int orientation = exifOrientation(data);
+                    if (orientation > 0) {
+                        return orientation;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Ignoring unreadable image metadata: {}", e.getMessage());
+        }
+        return 1;
+    }
+
+    private static int exifOrientation(byte[] app1) {
+        // "Exif\0\0", then a TIFF header: byte order, 42, offset of the first IFD
+        if (app1.length < 14 || app1[0] != 'E' || app1[1] != 'x' || app1[2] != 'i' || app1[3] != 'f') {
+            return -1;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(app1, 6, app1.length - 6).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifd = tiff.getInt(4);
+        if (ifd < 8 || ifd + 2 > tiff.limit()) {
+            return -1;
+        }
+        int entries = tiff.getShort(ifd) & 0xFFFF;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                break;
+            }
+            if ((tiff.getShort(entry) & 0xFFFF) == EXIF_ORIENTATION_TAG) {
+                return tiff.getShort(entry + 8) & 0xFFFF;
+            }
+        }
+        return -1;
+    }
+
+    private static String key(StoredFile source, ImageVariant variant) {
+        return source.sha256() + "/" + variant.parameter();
+    }
+}
@@ -0,0 +1,180 @@
+package com.carrental.service;
+
+import com.carrental.dto.response.CursorPage;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keyset (seek) pagination over a single sort key with {@code id} as the tie-breaker.
+ * The cursor encodes the sort key, direction and the last row's key values, so the
+ * next page is a range scan regardless of how deep the client has paged. Each part is
+ * base64url-encoded on its own, so values may contain any character, and a null value
+ * is written as {@code ~}, which base64url never produces. NULL sort values are placed
+ * where MySQL puts them: first when ascending, last when descending.
+ */
+final class KeysetPagination {
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+
+    private static final String ID = "id";
+    private static final String SEPARATOR = ".";
+    private static final String NULL = "~";
+
+    private KeysetPagination() {
+    }
+
+    record PageRequest(String property, Sort.Direction direction, Map<String, Object> after, Limit limit) {
+
+        Sort sort() {
+            return ID.equals(property)
+                    ? Sort.by(direction, ID)
+                    : Sort.by(direction, property).and(Sort.by(direction, ID));
+        }
+
+        /**
+         * This page of the repository's entities, fetching {@code associations} in the same query.
+         * The fetches are outer joins so the paged table stays first in the join order and can be
+         * read in sort-index order up to the limit; an inner join lets the optimizer start from
+         * the associated table and sort afterwards.
+         */
+        <T> Window<T> scroll(JpaSpecificationExecutor<T> repository, String... associations) {
+            // One row past the page tells whether there is a next one
+            List<T> rows = repository.findBy(seek(associations), query -> query.limit(limit.max() + 1).all());
+            List<T> page = rows.subList(0, Math.min(rows.size(), limit.max()));
+            return Window.from(page, index -> ScrollPosition.forward(keys(page.get(index))), rows.size() > page.size());
+        }
+
+        private Map<String, Object> keys(Object row) {
+            BeanWrapper wrapper = new BeanWrapperImpl(row);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put(property, wrapper.getPropertyValue(property));
+            keys.put(ID, wrapper.getPropertyValue(ID));
+            return keys;
+        }
+
+        /*
+         * Rows after the cursor, in page order. Spelled out rather than left to Spring Data's keyset
+         * scrolling, whose conditions never match a NULL sort value: such rows, which MySQL sorts
+         * lowest, would be skipped whenever a page boundary fell next to them. The order is set
+         * here too, since the fluent query's sortBy sends every sort key twice, which keeps H2 off
+         * the sort index.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private <T> Specification<T> seek(String... associations) {
+            return (root, query, cb) -> {
+                for (String association : associations) {
+                    root.fetch(association, JoinType.LEFT);
+                }
+                query.orderBy(QueryUtils.toOrders(sort(), root, cb));
+                if (after == null) {
+                    return null;
+                }
+                Path<Long> id = root.get(ID);
+                Long lastId = (Long) after.get(ID);
+                Predicate idAfter = direction.isAscending() ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+                if (ID.equals(property)) {
+                    return idAfter;
+                }
+                Path<Comparable> key = root.get(property);
+                Comparable value = (Comparable) after.get(property);
+                if (value == null) {
+                    return direction.isAscending()
+                            ? cb.or(cb.isNotNull(key), cb.and(cb.isNull(key), idAfter))
+                            : cb.and(cb.isNull(key), idAfter);
+                }
+                Predicate tie = cb.and(cb.equal(key, value), idAfter);
+                return direction.isAscending()
+                        ? cb.or(cb.greaterThan(key, value), tie)
+                        : cb.or(cb.lessThan(key, value), cb.isNull(key), tie);
+            };
+        }
+
+        <T, R> CursorPage<R> toPage(Window<T> window, Function<T, R> mapper) {
+            String nextCursor = null;
+            if (window.hasNext() && !window.isEmpty()) {
+                KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+                nextCursor = encode(property, direction, last.getKeys());
+            }
+            return CursorPage.<R>builder()
+                    .content(List.copyOf(window.map(mapper).getContent()))
+                    .size(window.size())
+                    .hasNext(window.hasNext())
+                    .nextCursor(nextCursor)
+                    .build();
+        }
+    }
+
+    /**
+     * @param sortKeys allowed sort properties mapped to a parser for their cursor values; must contain "id"
+     */
+    static PageRequest of(String cursor, Integer size, String sort, String direction,
+                          Map<String, Function<String, ?>> sortKeys) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        if (cursor == null || cursor.isBlank()) {
+            String property = sort == null ? ID : sort;
+            if (!sortKeys.containsKey(property)) {
+                throw new IllegalArgumentException("Unsupported sort property: " + property + ", expected one of " + sortKeys.keySet());
+            }
+            Sort.Direction sortDirection = direction == null ? Sort.Direction.ASC : Sort.Direction.fromString(direction);
+            return new PageRequest(property, sortDirection, null, Limit.of(pageSize));
+        }
+
+        String[] parts = cursor.split("\\" + SEPARATOR, -1);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = NULL.equals(parts[i]) ? null
+                        : new String(Base64.getUrlDecoder().decode(parts[i]), StandardCharsets.UTF_8);
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts[0] == null || !sortKeys.containsKey(parts[0]) || parts[1] == null || parts[3] == null) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        String property = parts[0];
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            if (!ID.equals(property)) {
+                keys.put(property, parts[2] == null ? null : sortKeys.get(property).apply(parts[2]));
+            }
+            keys.put(ID, Long.valueOf(parts[3]));
+            return new PageRequest(property, Sort.Direction.valueOf(parts[1]), keys, Limit.of(pageSize));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static String encode(String property, Sort.Direction direction, Map<String, Object> keys) {
+        Object value = ID.equals(property) ? null : keys.get(property);
+        return Stream.of(property, direction.name(), value, keys.get(ID))
+                .map(part -> part == null ? NULL : Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(part.toString().getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.joining(SEPARATOR));
+    }
+}
@@ -1,19 +1,26 @@
 package com.carrental.service;
 
 import com.carrental.dto.request.PaymentRequest;
+import com.carrental.dto.response.CursorPage;
 import com.carrental.dto.response.PaymentResponse;
+import com.carrental.event.BookingChangedEvent;
+import com.carrental.event.PaymentChangedEvent;
 import com.carrental.exception.ResourceNotFoundException;
 import com.carrental.model.*;
 import com.carrental.repository.BookingRepository;
 import com.carrental.repository.PaymentRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -21,19 +28,57 @@ public class PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final BookingRepository bookingRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StreamingExporter streamingExporter;
+
+    private static final Map<String, Function<String, ?>> SORT_KEYS = Map.of(
+            "id", Long::valueOf,
+            "paymentDate", LocalDateTime::parse);
+
+    static final List<CsvColumn<Payment>> CSV_COLUMNS = List.of(
+            CsvColumn.of("id", Payment::getId),
+            CsvColumn.of("bookingId", p -> p.getBooking().getId()),
+            CsvColumn.of("amount", Payment::getAmount),
+            CsvColumn.of("paymentStatus", Payment::getPaymentStatus),
+            CsvColumn.of("paymentMethod", Payment::getPaymentMethod),
+            CsvColumn.of("transactionId", Payment::getTransactionId),
+            CsvColumn.of("paymentDate", Payment::getPaymentDate));
+
+    @Transactional(readOnly = true)
+    public CursorPage<PaymentResponse> getAllPayments(String cursor, Integer size, String sort, String direction) {
+        KeysetPagination.PageRequest page = KeysetPagination.of(cursor, size, sort, direction, SORT_KEYS);
+        return page.toPage(page.scroll(paymentRepository), this::mapToPaymentResponse);
+    }
+
+    public StreamingResponseBody exportPayments(ExportFormat format) {
+        return streamingExporter.json(paymentRepository::streamAllForExport, this::mapToPaymentResponse, format);
+    }
 
-    public List<PaymentResponse> getAllPayments() {
-        return paymentRepository.findAll().stream()
-                .map(this::mapToPaymentResponse)
-                .collect(Collectors.toList());
+    // Both bounds are calendar days and inclusive
+    public StreamingResponseBody exportPaymentsCsv(LocalDate from, LocalDate to, PaymentStatus status, boolean gzip) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must be before end date");
+        }
+        LocalDateTime fromTime = from != null ? from.atStartOfDay() : null;
+        LocalDateTime toTime = to != null ? to.plusDays(1).atStartOfDay() : null;
+        return streamingExporter.csv(() -> paymentRepository.streamForExport(fromTime, toTime, status), CSV_COLUMNS, gzip);
     }
 
+    @Transactional(readOnly = true)
     public PaymentResponse getPaymentById(Long id) {
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Payment not found with id: " + id));
         return mapToPaymentResponse(payment);
     }
 
+    @Transactional(readOnly = true)
+    public ResourceVersion getPaymentVersion(Long id) {
+        return paymentRepository.findVersionById(id)
+                .map(v -> ResourceVersion.of("payment-" + id + "-" + v.getVersion(), v.getUpdatedAt()))
+                .orElseThrow(() -> new ResourceNotFoundException("Payment not found with id: " + id));
+    }
+
+    @Transactional(readOnly = true)
     public PaymentResponse getPaymentByBookingId(Long bookingId) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new ResourceNotFoundException("Booking not found with id: " + bookingId));
@@ -69,11 +114,13 @@ public class PaymentService {
                 .build();
 
         Payment savedPayment = paymentRepository.save(payment);
+        eventPublisher.publishEvent(new PaymentChangedEvent(savedPayment.getId(), booking.getId()));
 
         // Update booking status if payment is successful
         if (paymentSuccessful) {
             booking.setStatus(BookingStatus.CONFIRMED);
             bookingRepository.save(booking);
+            eventPublisher.publishEvent(BookingChangedEvent.of(booking));
         }
 
         return mapToPaymentResponse(savedPayment);
@@ -94,11 +141,13 @@ public class PaymentService {
         if (refundSuccessful) {
             payment.setPaymentStatus(PaymentStatus.REFUNDED);
             Payment updatedPayment = paymentRepository.save(payment);
+            eventPublisher.publishEvent(new PaymentChangedEvent(updatedPayment.getId(), payment.getBooking().getId()));
 
             // Update booking status
             Booking booking = payment.getBooking();
             booking.setStatus(BookingStatus.CANCELLED);
             bookingRepository.save(booking);
+            eventPublisher.publishEvent(BookingChangedEvent.of(booking));
 
             return mapToPaymentResponse(updatedPayment);
         } else {
@@ -0,0 +1,124 @@
+package com.carrental.service;
+
+import com.carrental.dto.response.JwtResponse;
+import com.carrental.exception.TokenRefreshException;
+import com.carrental.model.RefreshToken;
+import com.carrental.model.User;
+import com.carrental.repository.RefreshTokenRepository;
+import com.carrental.security.jwt.JwtUtils;
+import com.carrental.security.jwt.TokenDigests;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final JwtUtils jwtUtils;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.jwt.refresh-token-purge-batch-size:500}")
+    private int purgeBatchSize;
+
+    @Transactional
+    public String issue(User user) {
+        String token = jwtUtils.generateRefreshToken(user.getEmail());
+        Claims claims = jwtUtils.getClaimsFromJwtToken(token);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .user(user)
+                .tokenHash(TokenDigests.sha256(token))
+                .expiryDate(toLocalDateTime(claims))
+                .build());
+        return token;
+    }
+
+    /**
+     * Exchanges a refresh token for a new access/refresh pair, revoking the presented token.
+     * Presenting a token that was already rotated or revoked revokes every token of its owner.
+     */
+    @Transactional(noRollbackFor = TokenRefreshException.class)
+    public JwtResponse rotate(String refreshToken) {
+        Claims claims = jwtUtils.verifyJwtToken(refreshToken);
+        if (claims == null) {
+            throw new TokenRefreshException("Invalid or expired refresh token");
+        }
+
+        // The conditional update is both the check and the revocation, so no lookup comes first
+        String tokenHash = TokenDigests.sha256(refreshToken);
+        if (refreshTokenRepository.revokeIfActive(tokenHash, LocalDateTime.now()) == 0) {
+            if (refreshTokenRepository.existsByTokenHash(tokenHash)) {
+                throw reuseDetected(tokenHash);
+            }
+            throw new TokenRefreshException("Invalid or expired refresh token");
+        }
+
+        User user = refreshTokenRepository.findUserByTokenHash(tokenHash)
+                .filter(User::isEnabled)
+                .orElseThrow(() -> new TokenRefreshException("Invalid or expired refresh token"));
+
+        return JwtResponse.builder()
+                .token(jwtUtils.generateTokenForUser(user))
+                .refreshToken(issue(user))
+                .id(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .role(user.getRole().name())
+                .build();
+    }
+
+    @Transactional
+    public void revoke(String refreshToken) {
+        if (jwtUtils.verifyJwtToken(refreshToken) != null) {
+            refreshTokenRepository.revokeIfActive(TokenDigests.sha256(refreshToken), LocalDateTime.now());
+        }
+    }
+
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        refreshTokenRepository.revokeAllByUserId(userId, LocalDateTime.now());
+    }
+
+    // Deletes expired rows in short transactions so the purge never holds long locks
+    @Scheduled(fixedDelayString = "${app.jwt.refresh-token-purge-interval-ms:3600000}",
+            initialDelayString = "${app.jwt.refresh-token-purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> {
+                List<Long> ids = refreshTokenRepository.findExpiredIds(now, Limit.of(purgeBatchSize));
+                refreshTokenRepository.deleteAllByIdInBatch(ids);
+                return ids.size();
+            });
+            purged += deleted;
+        } while (deleted == purgeBatchSize);
+        log.debug("Purged {} expired refresh tokens", purged);
+    }
+
+    private TokenRefreshException reuseDetected(String tokenHash) {
+        refreshTokenRepository.findUserByTokenHash(tokenHash).ifPresent(user -> {
+            log.warn("Refresh token reuse detected for user {}, revoking all refresh tokens", user.getId());
+            revokeAllForUser(user.getId());
+        });
+        return new TokenRefreshException("Refresh token has already been used, please sign in again");
+    }
+
+    private static LocalDateTime toLocalDateTime(Claims claims) {
+        return LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,31 @@
+package com.carrental.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Validators for conditional GETs: a strong ETag and, when known, the last-modified time
+ * in epoch millis (-1 when there is none). Cheap to compute so a 304 can be answered
+ * before the resource itself is loaded.
+ */
+public record ResourceVersion(String etag, long lastModified) {
+
+    public static ResourceVersion of(String etag, LocalDateTime updatedAt) {
+        return new ResourceVersion(etag, toEpochMillis(updatedAt));
+    }
+
+    public static ResourceVersion of(String etag) {
+        return new ResourceVersion(etag, -1);
+    }
+
+    static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time == null ? -1 : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,219 @@
+package com.carrental.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps objects in an S3-compatible bucket, so every node behind the load balancer sees the same
+ * uploads. One client, and with it one pool of keep-alive connections, serves all requests. Large
+ * files go up in parts, read from disk one part at a time, and reads stream straight from the
+ * response, asking for just the range being served.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "s3")
+@Slf4j
+public class S3StorageBackend implements StorageBackend {
+
+    private final S3Client s3;
+    private final String bucket;
+    private final long multipartThreshold;
+    private final int partSize;
+
+    public S3StorageBackend(@Value("${app.storage.s3.endpoint:}") String endpoint,
+                            @Value("${app.storage.s3.region:us-east-1}") String region,
+                            @Value("${app.storage.s3.bucket}") String bucket,
+                            @Value("${app.storage.s3.access-key:}") String accessKey,
+                            @Value("${app.storage.s3.secret-key:}") String secretKey,
+                            @Value("${app.storage.s3.path-style-access:true}") boolean pathStyleAccess,
+                            @Value("${app.storage.s3.max-connections:50}") int maxConnections,
+                            @Value("${app.storage.s3.multipart-threshold:16MB}") DataSize multipartThreshold,
+                            @Value("${app.storage.s3.part-size:8MB}") DataSize partSize) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyleAccess)
+                .credentialsProvider(accessKey.isBlank()
+                        ? DefaultCredentialsProvider.create()
+                        : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .tcpKeepAlive(true));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        this.s3 = builder.build();
+        this.bucket = bucket;
+        this.multipartThreshold = multipartThreshold.toBytes();
+        this.partSize = (int) partSize.toBytes();
+
+        // Fail at startup rather than on the first upload
+        s3.headBucket(request -> request.bucket(bucket));
+        log.info("Storing files in bucket {} at {}", bucket, endpoint.isBlank() ? "S3 (" + region + ")" : endpoint);
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        long size = Files.size(source);
+        if (size < multipartThreshold) {
+            try {
+                s3.putObject(request -> request.bucket(bucket).key(key), RequestBody.fromFile(source));
+            } catch (SdkException ex) {
+                throw new IOException("Could not store " + key + " in bucket " + bucket, ex);
+            }
+            return;
+        }
+
+        String uploadId;
+        try {
+            uploadId = s3.createMultipartUpload(request -> request.bucket(bucket).key(key)).uploadId();
+        } catch (SdkException ex) {
+            throw new IOException("Could not start uploading " + key + " to bucket " + bucket, ex);
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            List<CompletedPart> parts = new ArrayList<>();
+            byte[] buffer = new byte[(int) Math.min(partSize, size)];
+            for (int partNumber = 1; channel.position() < size; partNumber++) {
+                int length = readPart(channel, buffer);
+                int number = partNumber;
+                // The SDK may read a part twice (signing, retries), so each read gets a fresh stream over the buffer
+                String eTag = s3.uploadPart(request -> request.bucket(bucket).key(key).uploadId(uploadId).partNumber(number),
+                        RequestBody.fromContentProvider(() -> new ByteArrayInputStream(buffer, 0, length), length,
+                                "application/octet-stream")).eTag();
+                parts.add(CompletedPart.builder().partNumber(number).eTag(eTag).build());
+            }
+            s3.completeMultipartUpload(request -> request.bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(upload -> upload.parts(parts)));
+            log.debug("Uploaded {} to bucket {} in {} parts", key, bucket, parts.size());
+        } catch (IOException | SdkException ex) {
+            abort(key, uploadId);
+            throw ex instanceof IOException io ? io : new IOException("Could not upload " + key + " to bucket " + bucket, ex);
+        }
+    }
+
+    @Override
+    public void put(String key, byte[] content) throws IOException {
+        try {
+            s3.putObject(request -> request.bucket(bucket).key(key), RequestBody.fromBytes(content));
+        } catch (SdkException ex) {
+            throw new IOException("Could not store " + key + " in bucket " + bucket, ex);
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, byte[] content) throws IOException {
+        try {
+            s3.putObject(request -> request.bucket(bucket).key(key).ifNoneMatch("*"), RequestBody.fromBytes(content));
+            return true;
+        } catch (S3Exception ex) {
+            // 412 when the key exists, 409 when another conditional write to it is in progress
+            if (ex.statusCode() == 412 || ex.statusCode() == 409) {
+                return false;
+            }
+            throw new IOException("Could not store " + key + " in bucket " + bucket, ex);
+        } catch (SdkException ex) {
+            throw new IOException("Could not store " + key + " in bucket " + bucket, ex);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> read(String key) throws IOException {
+        try {
+            return Optional.of(s3.getObjectAsBytes(request -> request.bucket(bucket).key(key)).asByteArray());
+        } catch (S3Exception ex) {
+            if (ex.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("Could not read " + key + " from bucket " + bucket, ex);
+        } catch (SdkException ex) {
+            throw new IOException("Could not read " + key + " from bucket " + bucket, ex);
+        }
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        try {
+            return s3.getObject(request -> request.bucket(bucket).key(key)
+                    .range("bytes=" + offset + "-" + (offset + length - 1)));
+        } catch (S3Exception ex) {
+            if (ex.statusCode() == 404) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("Could not read " + key + " from bucket " + bucket, ex);
+        } catch (SdkException ex) {
+            throw new IOException("Could not read " + key + " from bucket " + bucket, ex);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            s3.headObject(request -> request.bucket(bucket).key(key));
+            return true;
+        } catch (S3Exception ex) {
+            if (ex.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Could not look up " + key + " in bucket " + bucket, ex);
+        } catch (SdkException ex) {
+            throw new IOException("Could not look up " + key + " in bucket " + bucket, ex);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3.deleteObject(request -> request.bucket(bucket).key(key));
+        } catch (SdkException ex) {
+            throw new IOException("Could not delete " + key + " from bucket " + bucket, ex);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        s3.close();
+    }
+
+    private void abort(String key, String uploadId) {
+        try {
+            s3.abortMultipartUpload(request -> request.bucket(bucket).key(key).uploadId(uploadId));
+        } catch (SdkException ex) {
+            log.warn("Could not abort upload {} of {}; the bucket's lifecycle rules must clean it up", uploadId, key, ex);
+        }
+    }
+
+    private static int readPart(FileChannel channel, byte[] buffer) throws IOException {
+        ByteBuffer part = ByteBuffer.wrap(buffer);
+        while (part.hasRemaining() && channel.read(part) != -1) {
+            // Keep reading until the part is full or the file ends
+        }
+        return part.position();
+    }
+}
@@ -0,0 +1,41 @@
+package com.carrental.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Where {@link FileStorageService} keeps blobs and the small records that point at them, addressed
+ * by slash-separated keys. Selected with {@code app.storage.backend}: {@code local} keeps them under
+ * {@code file.upload-dir}, {@code s3} in a bucket every node of the application can share.
+ */
+public interface StorageBackend {
+
+    /** Stores the file at {@code source} under {@code key}. The source may be moved in rather than copied. */
+    void put(String key, Path source) throws IOException;
+
+    void put(String key, byte[] content) throws IOException;
+
+    /**
+     * Stores {@code content} under {@code key} unless something is stored there already, in one
+     * atomic step, so exactly one of several nodes racing for the same key gets {@code true}.
+     */
+    boolean putIfAbsent(String key, byte[] content) throws IOException;
+
+    /** The whole content under {@code key}; meant for small records. */
+    Optional<byte[]> read(String key) throws IOException;
+
+    /** Streams {@code length} bytes starting at {@code offset}; throws {@link NoSuchFileException} when absent. */
+    InputStream open(String key, long offset, long length) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /** The file behind {@code key}, for backends that keep one, so it can be sent without passing through the JVM. */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+}
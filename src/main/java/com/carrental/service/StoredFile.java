@@ -0,0 +1,16 @@
+package com.carrental.service;
+
+/**
+ * An uploaded file with the metadata recorded when it was stored: its MIME type and the SHA-256
+ * of its content, which doubles as a strong ETag and names the blob stored under {@code key}.
+ * {@code immutable} is set for the UUID names handed out at upload, whose content never
+ * changes under the same name.
+ */
+public record StoredFile(String name, String key, String contentType, String sha256, long size, long lastModified,
+                         boolean immutable) {
+
+    StoredFile withImmutable(boolean immutable) {
+        return immutable == this.immutable ? this
+                : new StoredFile(name, key, contentType, sha256, size, lastModified, immutable);
+    }
+}
@@ -0,0 +1,233 @@
+package com.carrental.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.Temporal;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes repository streams straight to the response. Rows are read through a forward-only
+ * cursor inside a read-only transaction, serialized one at a time and evicted from the
+ * persistence context, so memory use does not grow with the size of the export.
+ */
+@Component
+@Slf4j
+public class StreamingExporter {
+
+    public static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    // Rows between persistence-context clears; keeps the session small without clearing per row
+    private static final int CLEAR_INTERVAL = 100;
+
+    // Fixed write buffer (and gzip window buffer) per export, whatever the row count
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter rowWriter;
+    private final ObjectMapper objectMapper;
+
+    public StreamingExporter(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        // The servlet output buffer decides when bytes go out; flushing every row would send one chunk per row
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public <E, D> StreamingResponseBody json(Supplier<Stream<E>> query, Function<E, D> mapper, ExportFormat format) {
+        return out -> export(query, out, rows -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                if (format == ExportFormat.JSON_ARRAY) {
+                    generator.writeStartArray();
+                }
+                while (rows.hasNext()) {
+                    rowWriter.writeValue(generator, mapper.apply(rows.next()));
+                    if (format == ExportFormat.NDJSON) {
+                        generator.writeRaw('\n');
+                    }
+                }
+                if (format == ExportFormat.JSON_ARRAY) {
+                    generator.writeEndArray();
+                }
+            }
+        });
+    }
+
+    public <E> StreamingResponseBody csv(Supplier<Stream<E>> query, List<CsvColumn<E>> columns, boolean gzip) {
+        return out -> {
+            GzipStream compressed = gzip ? new GzipStream(out) : null;
+            try {
+                Writer writer = new BufferedWriter(
+                        new OutputStreamWriter(compressed != null ? compressed : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+                export(query, out, rows -> writeCsv(rows, columns, writer));
+                writer.flush();
+                if (compressed != null) {
+                    compressed.finish();
+                }
+            } finally {
+                if (compressed != null) {
+                    compressed.end();
+                }
+            }
+        };
+    }
+
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    public static HttpHeaders csvHeaders(String filename, boolean gzip) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(TEXT_CSV);
+        headers.setContentDisposition(ContentDisposition.attachment().filename(filename).build());
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return headers;
+    }
+
+    static <E> void writeCsv(Iterator<E> rows, List<CsvColumn<E>> columns, Writer writer) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCell(writer, columns.get(i).header());
+        }
+        writer.write("\r\n");
+        while (rows.hasNext()) {
+            E row = rows.next();
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCell(writer, columns.get(i).value().apply(row));
+            }
+            writer.write("\r\n");
+        }
+    }
+
+    // RFC 4180 quoting; text cells that a spreadsheet would run as a formula are prefixed with '
+    private static void writeCell(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof BigDecimal decimal) {
+            writer.write(decimal.toPlainString());
+            return;
+        }
+        if (value instanceof Number || value instanceof Enum<?> || value instanceof Temporal) {
+            writer.write(value.toString());
+            return;
+        }
+        String text = value.toString();
+        boolean formula = !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0;
+        boolean quote = formula || text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        if (formula) {
+            writer.write('\'');
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    <E> void export(Supplier<Stream<E>> query, OutputStream out, RowSink<E> sink) throws IOException {
+        long started = System.nanoTime();
+        long[] count = new long[1];
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<E> rows = query.get()) {
+                    Iterator<E> iterator = rows.iterator();
+                    sink.write(new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public E next() {
+                            if (count[0]++ % CLEAR_INTERVAL == 0) {
+                                entityManager.clear();
+                            }
+                            return iterator.next();
+                        }
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("Export aborted after {} rows: {}", count[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+        log.debug("Exported {} rows in {} ms", count[0], (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @FunctionalInterface
+    interface RowSink<E> {
+        void write(Iterator<E> rows) throws IOException;
+    }
+
+    // Gzip whose deflater can be released without closing the response stream, which the container owns
+    private static final class GzipStream extends GZIPOutputStream {
+
+        GzipStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+        }
+
+        // Frees the deflater's native memory now rather than when the stream is collected
+        void end() {
+            def.end();
+        }
+    }
+}
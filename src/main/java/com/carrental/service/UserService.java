@@ -3,23 +3,27 @@ package com.carrental.service;
 import com.carrental.dto.request.PasswordResetRequest;
 import com.carrental.dto.request.PasswordUpdateRequest;
 import com.carrental.dto.request.SignupRequest;
+import com.carrental.dto.response.CursorPage;
 import com.carrental.dto.response.UserResponse;
+import com.carrental.event.UserSecurityChangedEvent;
 import com.carrental.exception.ResourceNotFoundException;
 import com.carrental.model.Role;
 import com.carrental.model.User;
 import com.carrental.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.Map;
+import java.util.Set;
 import java.lang.reflect.Field;
-import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 
@@ -32,6 +36,21 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
     private final FileStorageService fileStorageService;
+    private final ImageVariantService imageVariantService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RefreshTokenService refreshTokenService;
+    private final StreamingExporter streamingExporter;
+
+    private static final Map<String, Function<String, ?>> SORT_KEYS = Map.of(
+            "id", Long::valueOf,
+            "name", Function.identity());
+
+    // Changing any of these invalidates access tokens already issued to the user
+    private static final Set<String> SECURITY_FIELDS = Set.of("email", "password", "role", "enabled");
+
+    // Kept by the server; a partial update naming any of them is refused outright
+    private static final Set<String> SERVER_MANAGED_FIELDS =
+            Set.of("id", "securityVersion", "resetToken", "profilePicture");
 
 //    @Transactional
 //    public UserResponse createUser(SignupRequest signupRequest) {
@@ -111,18 +130,24 @@ public class UserService {
         return mapToUserResponse(savedUser);
     }
 
-    public List<UserResponse> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(this::mapToUserResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<UserResponse> getAllUsers(String cursor, Integer size, String sort, String direction) {
+        KeysetPagination.PageRequest page = KeysetPagination.of(cursor, size, sort, direction, SORT_KEYS);
+        return page.toPage(page.scroll(userRepository), this::mapToUserResponse);
+    }
+
+    public StreamingResponseBody exportUsers(ExportFormat format) {
+        return streamingExporter.json(userRepository::streamAllForExport, this::mapToUserResponse, format);
     }
 
+    @Transactional(readOnly = true)
     public UserResponse getUserById(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
         return mapToUserResponse(user);
     }
 
+    @Transactional(readOnly = true)
     public UserResponse getUserByEmail(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
@@ -136,6 +161,7 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
         user.setName(signupRequest.getName());
+        boolean securityChanged = false;
 
         // Only check email uniqueness if it's changed
         if (!user.getEmail().equals(signupRequest.getEmail())) {
@@ -143,6 +169,7 @@ public class UserService {
                 throw new IllegalArgumentException("Email is already in use!");
             }
             user.setEmail(signupRequest.getEmail());
+            securityChanged = true;
         }
 
         // Update additional fields
@@ -154,6 +181,11 @@ public class UserService {
         // Only update password if provided
         if (signupRequest.getPassword() != null && !signupRequest.getPassword().isEmpty()) {
             user.setPassword(passwordEncoder.encode(signupRequest.getPassword()));
+            securityChanged = true;
+        }
+
+        if (securityChanged) {
+            revokeIssuedTokens(user);
         }
 
         User updatedUser = userRepository.save(user);
@@ -166,6 +198,13 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
+        updates.keySet().stream()
+                .filter(SERVER_MANAGED_FIELDS::contains)
+                .findFirst()
+                .ifPresent(key -> {
+                    throw new IllegalArgumentException("Field '" + key + "' cannot be updated");
+                });
+
         updates.forEach((key, value) -> {
             try {
                 Field field = User.class.getDeclaredField(key);
@@ -205,6 +244,10 @@ public class UserService {
             }
         });
 
+        if (updates.keySet().stream().anyMatch(SECURITY_FIELDS::contains)) {
+            revokeIssuedTokens(user);
+        }
+
         User updatedUser = userRepository.save(user);
         return mapToUserResponse(updatedUser);
     }
@@ -225,6 +268,7 @@ public class UserService {
 
             // Store the new profile picture
             String fileName = fileStorageService.storeFile(file);
+            imageVariantService.generateVariants(fileName);
             user.setProfilePicture(fileName);
 
             User updatedUser = userRepository.save(user);
@@ -242,6 +286,15 @@ public class UserService {
             throw new ResourceNotFoundException("User not found with id: " + id);
         }
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(id));
+    }
+
+    @Transactional
+    public void revokeAllSessions(String email) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        revokeIssuedTokens(user);
+        userRepository.save(user);
     }
 
     @Transactional
@@ -272,6 +325,7 @@ public class UserService {
 
             user.setPassword(passwordEncoder.encode(request.getPassword()));
             user.setResetToken(null);
+            revokeIssuedTokens(user);
             userRepository.save(user);
 
             log.info("Password reset successful for user ID: {}", user.getId());
@@ -281,6 +335,12 @@ public class UserService {
         }
     }
 
+    private void revokeIssuedTokens(User user) {
+        user.setSecurityVersion(user.getSecurityVersion() + 1);
+        refreshTokenService.revokeAllForUser(user.getId());
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId()));
+    }
+
     private UserResponse mapToUserResponse(User user) {
         return UserResponse.builder()
                 .id(user.getId())
@@ -0,0 +1,24 @@
+-- Columns and tables the application needs on top of the baseline schema.
+
+-- Bumped whenever credentials, role or account status change; tokens carrying an older value are rejected
+ALTER TABLE `users` ADD COLUMN `security_version` bigint NOT NULL DEFAULT '0';
+
+-- Optimistic locking and conditional GETs
+ALTER TABLE `cars` ADD COLUMN `version` bigint NOT NULL DEFAULT '0';
+ALTER TABLE `cars` ADD COLUMN `updated_at` datetime DEFAULT NULL;
+
+ALTER TABLE `bookings` ADD COLUMN `version` bigint NOT NULL DEFAULT '0';
+ALTER TABLE `bookings` ADD COLUMN `updated_at` datetime DEFAULT NULL;
+
+ALTER TABLE `payments` ADD COLUMN `version` bigint NOT NULL DEFAULT '0';
+ALTER TABLE `payments` ADD COLUMN `updated_at` datetime DEFAULT NULL;
+
+-- Rotated and logged-out refresh tokens are kept, revoked, so a replayed token can be recognised
+ALTER TABLE `refresh_tokens` ADD COLUMN `revoked_at` datetime NULL DEFAULT NULL;
+
+-- Pooled id blocks, one row per entity; the application moves each row past MAX(id) on startup
+CREATE TABLE IF NOT EXISTS `id_sequences` (
+  `sequence_name` varchar(255) NOT NULL,
+  `next_val` bigint DEFAULT NULL,
+  PRIMARY KEY (`sequence_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
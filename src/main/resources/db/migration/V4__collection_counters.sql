@@ -0,0 +1,8 @@
+-- One version per collection, moved on in the same transaction as every write to it; list ETags are read from here
+CREATE TABLE IF NOT EXISTS `collection_counters` (
+  `name` varchar(32) NOT NULL,
+  `version` bigint NOT NULL,
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT INTO `collection_counters` (`name`, `version`) VALUES ('cars', 0), ('bookings', 0), ('payments', 0);
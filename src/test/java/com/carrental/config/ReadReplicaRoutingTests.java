@@ -0,0 +1,169 @@
+package com.carrental.config;
+
+import com.carrental.exception.ResourceNotFoundException;
+import com.carrental.model.Booking;
+import com.carrental.model.BookingStatus;
+import com.carrental.service.BookingService;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the application against two embedded databases, both migrated by Flyway, standing in for
+ * a primary and its replica. Rows written to only one of them show which pool served a call.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTests.PRIMARY_URL,
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "app.datasource.replica.maximum-pool-size=3"})
+@ActiveProfiles("test")
+class ReadReplicaRoutingTests {
+
+    static final String PRIMARY_URL =
+            "jdbc:h2:mem:routing_primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR";
+    static final String REPLICA_URL =
+            "jdbc:h2:mem:routing_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR";
+
+    private static final long BOOKING_ID = 900_000L;
+
+    @DynamicPropertySource
+    static void replica(DynamicPropertyRegistry registry) {
+        // Startup reads (availability index, revoked tokens) already go to the replica, so it needs its schema first
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+        registry.add("app.datasource.replica.url", () -> REPLICA_URL);
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private BookingService bookingService;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        primary.update("DELETE FROM bookings WHERE id = ?", BOOKING_ID);
+        replica.update("DELETE FROM bookings WHERE id = ?", BOOKING_ID);
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplicaPool() {
+        String written = transactionTemplate.execute(status -> databaseName(dataSource));
+        String read = readOnly().execute(status -> databaseName(dataSource));
+
+        assertThat(written).isEqualToIgnoringCase("routing_primary");
+        assertThat(read).isEqualToIgnoringCase("routing_replica");
+        assertThat(databaseName(dataSource)).isEqualToIgnoringCase("routing_primary");
+    }
+
+    @Test
+    void replicaPoolIsSizedOnItsOwn() {
+        assertThat(replicaDataSource.getMaximumPoolSize()).isEqualTo(3);
+        assertThat(primaryDataSource.getMaximumPoolSize()).isEqualTo(10);
+        assertThat(replicaDataSource.isReadOnly()).isTrue();
+    }
+
+    @Test
+    void serviceReadsComeFromTheReplicaAndWritesGoToThePrimary() {
+        insertBooking(replica);
+
+        assertThat(bookingService.getBookingById(BOOKING_ID).getStatus()).isEqualTo(BookingStatus.PENDING);
+        assertThatThrownBy(() -> bookingService.updateBookingStatus(BOOKING_ID, BookingStatus.CONFIRMED))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        insertBooking(primary);
+        bookingService.updateBookingStatus(BOOKING_ID, BookingStatus.CONFIRMED);
+
+        assertThat(status(primary)).isEqualTo("CONFIRMED");
+        assertThat(status(replica)).isEqualTo("PENDING");
+    }
+
+    @Test
+    void readOnlyTransactionsDoNotFlushChanges() {
+        insertBooking(primary);
+        insertBooking(replica);
+
+        readOnly().executeWithoutResult(status ->
+                entityManager.find(Booking.class, BOOKING_ID).setStatus(BookingStatus.CANCELLED));
+
+        assertThat(status(primary)).isEqualTo("PENDING");
+        assertThat(status(replica)).isEqualTo("PENDING");
+    }
+
+    @Test
+    void everythingUsesThePrimaryWithoutAReplica() {
+        new ApplicationContextRunner()
+                .withInitializer(context -> context.getBeanFactory().setConversionService(new ApplicationConversionService()))
+                .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+                .withUserConfiguration(DataSourceConfig.class)
+                .withPropertyValues("spring.datasource.url=jdbc:h2:mem:routing_fallback;DB_CLOSE_DELAY=-1")
+                .run(context -> {
+                    assertThat(context).doesNotHaveBean("replicaDataSource");
+                    DataSource routed = context.getBean("dataSource", DataSource.class);
+                    TransactionTemplate readOnly = new TransactionTemplate(new DataSourceTransactionManager(routed));
+                    readOnly.setReadOnly(true);
+                    String read = readOnly.execute(status -> databaseName(routed));
+                    assertThat(read).isEqualToIgnoringCase("routing_fallback");
+                });
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private static String databaseName(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT DATABASE()", String.class);
+    }
+
+    private static void insertBooking(JdbcTemplate database) {
+        database.update("INSERT INTO bookings (id, user_id, car_id, start_date, end_date, total_price, status, "
+                + "pickup_location, drop_off_location, version) "
+                + "VALUES (?, 1, 1, DATE '2030-01-01', DATE '2030-01-03', 100, 'PENDING', 'Airport', 'Airport', 0)",
+                BOOKING_ID);
+    }
+
+    private static String status(JdbcTemplate database) {
+        return database.queryForObject("SELECT status FROM bookings WHERE id = ?", String.class, BOOKING_ID);
+    }
+}
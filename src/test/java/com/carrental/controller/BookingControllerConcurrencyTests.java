@@ -0,0 +1,128 @@
+package com.carrental.controller;
+
+import com.carrental.model.Booking;
+import com.carrental.model.BookingStatus;
+import com.carrental.model.Car;
+import com.carrental.model.Role;
+import com.carrental.model.User;
+import com.carrental.repository.BookingRepository;
+import com.carrental.repository.CarRepository;
+import com.carrental.repository.UserRepository;
+import com.carrental.security.jwt.JwtUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires a few hundred overlapping booking requests for one car. It runs against its own in-memory
+ * database, so the users, cars and bookings it leaves behind are never seen by other tests.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties =
+        "spring.datasource.url=jdbc:h2:mem:booking_concurrency;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR")
+@ActiveProfiles("test")
+class BookingControllerConcurrencyTests {
+
+    private static final int REQUESTS = 300;
+    private static final int THREADS = 48;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Test
+    void parallelBookingsForSameCarNeverOverlap() throws Exception {
+        User user = userRepository.save(User.builder()
+                .name("Stress Tester")
+                .email("stress@carrental.com")
+                .password("not-used")
+                .role(Role.CUSTOMER)
+                .build());
+        Car car = carRepository.save(Car.builder()
+                .make("Toyota")
+                .model("Camry")
+                .year(2022)
+                .pricePerDay(new BigDecimal("50.00"))
+                .build());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(jwtUtils.generateTokenForUser(user));
+
+        Random random = new Random(42);
+        LocalDate horizon = LocalDate.now().plusDays(10);
+        List<Map<String, Object>> requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            LocalDate start = horizon.plusDays(random.nextInt(30));
+            requests.add(Map.of(
+                    "carId", car.getId(),
+                    "startDate", start.toString(),
+                    "endDate", start.plusDays(random.nextInt(4)).toString(),
+                    "pickupLocation", "Airport",
+                    "dropOffLocation", "Downtown"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<ResponseEntity<String>>> responses = new ArrayList<>();
+        for (Map<String, Object> body : requests) {
+            responses.add(executor.submit(() -> {
+                startGate.await();
+                return restTemplate.postForEntity("/bookings", new HttpEntity<>(body, headers), String.class);
+            }));
+        }
+        startGate.countDown();
+
+        int created = 0;
+        for (Future<ResponseEntity<String>> response : responses) {
+            int status = response.get().getStatusCode().value();
+            assertThat(status).as("unexpected response: %s", response.get().getBody()).isIn(200, 409);
+            if (status == 200) {
+                created++;
+            }
+        }
+        executor.shutdown();
+
+        List<Booking> active = bookingRepository.findByCar(car).stream()
+                .filter(booking -> booking.getStatus() != BookingStatus.CANCELLED)
+                .toList();
+        assertThat(active).hasSize(created).isNotEmpty();
+        for (int i = 0; i < active.size(); i++) {
+            for (int j = i + 1; j < active.size(); j++) {
+                Booking a = active.get(i);
+                Booking b = active.get(j);
+                boolean overlaps = !a.getStartDate().isAfter(b.getEndDate()) && !b.getStartDate().isAfter(a.getEndDate());
+                assertThat(overlaps).as("bookings %d and %d overlap", a.getId(), b.getId()).isFalse();
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.carrental.controller;
+
+import com.carrental.model.Role;
+import com.carrental.model.User;
+import com.carrental.repository.UserRepository;
+import com.carrental.security.jwt.JwtUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Partial updates users make to their own account. Runs against its own in-memory database.
+ */
+@SpringBootTest(properties =
+        "spring.datasource.url=jdbc:h2:mem:user_controller;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class UserControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Test
+    void serverManagedFieldsCannotBePatched() throws Exception {
+        User user = userRepository.save(User.builder()
+                .name("Patch Tester")
+                .email("patch@carrental.com")
+                .password("not-used")
+                .role(Role.CUSTOMER)
+                .securityVersion(3)
+                .resetToken("reset")
+                .build());
+        String token = jwtUtils.generateTokenForUser(user);
+
+        for (String body : new String[]{"{\"securityVersion\":0}", "{\"id\":1}", "{\"resetToken\":null}",
+                "{\"name\":\"Renamed\",\"profilePicture\":\"other.png\"}"}) {
+            mockMvc.perform(patch("/users/{id}", user.getId())
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isBadRequest());
+        }
+
+        User unchanged = userRepository.findById(user.getId()).orElseThrow();
+        assertThat(unchanged.getSecurityVersion()).isEqualTo(3);
+        assertThat(unchanged.getResetToken()).isEqualTo("reset");
+        assertThat(unchanged.getName()).isEqualTo("Patch Tester");
+
+        // The token is still good, since nothing was changed
+        mockMvc.perform(patch("/users/{id}", user.getId())
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Renamed"));
+    }
+}
@@ -0,0 +1,199 @@
+package com.carrental.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Table;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * Insert throughput (rows/s) for 1000-row transactions by id strategy, with and without JDBC
+ * batching: identity columns, a shared {@code hibernate_sequence} table bumped on every insert,
+ * {@code GenerationType.AUTO} as it resolves on MySQL (a per-entity table with blocks of 50)
+ * and {@link PooledIdGenerator}. Sequence tables are forced so H2 behaves like MySQL; the
+ * database is in memory, so network round trips saved by batching are not part of the numbers.
+ * Run with {@code main} after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGenerationBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"identity", "shared-sequence", "auto", "pooled"})
+    private String strategy;
+
+    @Param({"false", "true"})
+    private boolean batched;
+
+    private SessionFactory sessionFactory;
+    private LongFunction<Object> rowFactory;
+    private String table;
+
+    @Setup
+    public void setUp() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(IdentityRow.class)
+                .addAnnotatedClass(SharedSequenceRow.class)
+                .addAnnotatedClass(AutoRow.class)
+                .addAnnotatedClass(PooledRow.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:ids;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, batched ? "50" : "0")
+                .setProperty(AvailableSettings.ORDER_INSERTS, Boolean.toString(batched))
+                .setProperty(PooledIdGenerator.ALLOCATION_SIZE_SETTING, "50")
+                .buildSessionFactory();
+        switch (strategy) {
+            case "identity" -> {
+                rowFactory = i -> new IdentityRow("Make" + i, "Model", BigDecimal.valueOf(i));
+                table = "identity_rows";
+            }
+            case "shared-sequence" -> {
+                rowFactory = i -> new SharedSequenceRow("Make" + i, "Model", BigDecimal.valueOf(i));
+                table = "shared_sequence_rows";
+            }
+            case "auto" -> {
+                rowFactory = i -> new AutoRow("Make" + i, "Model", BigDecimal.valueOf(i));
+                table = "auto_rows";
+            }
+            default -> {
+                rowFactory = i -> new PooledRow("Make" + i, "Model", BigDecimal.valueOf(i));
+                table = "pooled_rows";
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        sessionFactory.inTransaction(session ->
+                session.createNativeMutationQuery("TRUNCATE TABLE " + table).executeUpdate());
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void insertRows() {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (long i = 0; i < ROWS; i++) {
+                session.persist(rowFactory.apply(i));
+            }
+            session.getTransaction().commit();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IdGenerationBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @MappedSuperclass
+    public abstract static class BenchRow {
+        private String make;
+        private String model;
+        private BigDecimal price;
+
+        protected BenchRow() {
+        }
+
+        protected BenchRow(String make, String model, BigDecimal price) {
+            this.make = make;
+            this.model = model;
+            this.price = price;
+        }
+    }
+
+    @Entity
+    @Table(name = "identity_rows")
+    public static class IdentityRow extends BenchRow {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+
+        protected IdentityRow() {
+        }
+
+        IdentityRow(String make, String model, BigDecimal price) {
+            super(make, model, price);
+        }
+    }
+
+    @Entity
+    @Table(name = "shared_sequence_rows")
+    public static class SharedSequenceRow extends BenchRow {
+        @Id
+        @GeneratedValue(generator = "shared_sequence_row_id")
+        @GenericGenerator(name = "shared_sequence_row_id", type = SequenceStyleGenerator.class, parameters = {
+                @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "hibernate_sequence"),
+                @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "1"),
+                @Parameter(name = SequenceStyleGenerator.FORCE_TBL_PARAM, value = "true")})
+        private Long id;
+
+        protected SharedSequenceRow() {
+        }
+
+        SharedSequenceRow(String make, String model, BigDecimal price) {
+            super(make, model, price);
+        }
+    }
+
+    @Entity
+    @Table(name = "auto_rows")
+    public static class AutoRow extends BenchRow {
+        @Id
+        @GeneratedValue(generator = "auto_row_id")
+        @GenericGenerator(name = "auto_row_id", type = SequenceStyleGenerator.class, parameters = {
+                @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "auto_rows_seq"),
+                @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50"),
+                @Parameter(name = SequenceStyleGenerator.FORCE_TBL_PARAM, value = "true")})
+        private Long id;
+
+        protected AutoRow() {
+        }
+
+        AutoRow(String make, String model, BigDecimal price) {
+            super(make, model, price);
+        }
+    }
+
+    @Entity
+    @Table(name = "pooled_rows")
+    public static class PooledRow extends BenchRow {
+        @Id
+        @GeneratedValue(generator = "pooled_row_id")
+        @GenericGenerator(name = "pooled_row_id", type = PooledIdGenerator.class,
+                parameters = @Parameter(name = TableGenerator.SEGMENT_VALUE_PARAM, value = "pooled_rows"))
+        private Long id;
+
+        protected PooledRow() {
+        }
+
+        PooledRow(String make, String model, BigDecimal price) {
+            super(make, model, price);
+        }
+    }
+}
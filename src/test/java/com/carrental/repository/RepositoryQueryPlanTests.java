@@ -0,0 +1,255 @@
+package com.carrental.repository;
+
+import com.carrental.model.BookingStatus;
+import com.carrental.model.PaymentStatus;
+import jakarta.persistence.criteria.JoinType;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every repository query against the schema built by the Flyway migrations (H2 in MySQL
+ * mode) and EXPLAINs the SQL it sends. A query fails when its plan scans a table that is not
+ * listed as scannable for it. The tables are filled and analyzed first so the planner sees
+ * realistic row counts rather than picking join orders for empty tables.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query_plans;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.carrental.repository.RepositoryQueryPlanTests$SqlRecorder"})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RepositoryQueryPlanTests {
+
+    private static final Pattern TABLE_SCAN = Pattern.compile("(\\w+)\\.tableScan");
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+    private static final LocalDateTime NOW = DAY.atStartOfDay();
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private CollectionCounterRepository collectionCounterRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<String, List<String>> violations = new LinkedHashMap<>();
+
+    @BeforeAll
+    void fillTables() {
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password, role, reset_token) "
+                + "SELECT x, CONCAT('User ', x), CONCAT('user', x, '@example.com'), 'hash', 'CUSTOMER', "
+                + "CASE WHEN MOD(x, 10) = 0 THEN RANDOM_UUID() END FROM SYSTEM_RANGE(2, 2000) r(x)");
+        jdbcTemplate.update("INSERT INTO cars (id, make, model, year, price_per_day) "
+                + "SELECT x, CONCAT('Make ', MOD(x, 20)), CONCAT('Model ', x), 2020, 20 + MOD(x, 200) "
+                + "FROM SYSTEM_RANGE(6, 500) r(x)");
+        jdbcTemplate.update("INSERT INTO bookings (id, user_id, car_id, start_date, end_date, total_price, status, "
+                + "pickup_location, drop_off_location) "
+                + "SELECT x, 2 + MOD(x, 1999), 1 + MOD(x, 500), DATEADD(DAY, MOD(x, 700), DATE '2029-01-01'), "
+                + "DATEADD(DAY, MOD(x, 700) + 3, DATE '2029-01-01'), 150, "
+                + "CASEWHEN(MOD(x, 7) = 0, 'CANCELLED', 'CONFIRMED'), 'Airport', 'Airport' FROM SYSTEM_RANGE(1, 10000) r(x)");
+        jdbcTemplate.update("INSERT INTO payments (id, booking_id, amount, payment_status, payment_date) "
+                + "SELECT x, x, 150, 'COMPLETED', DATEADD(DAY, MOD(x, 700), TIMESTAMP '2029-01-01 10:00:00') "
+                + "FROM SYSTEM_RANGE(1, 8000) r(x)");
+        jdbcTemplate.update("INSERT INTO refresh_tokens (id, user_id, token, expiry_date, revoked_at) "
+                + "SELECT x, 2 + MOD(x, 1999), RANDOM_UUID(), DATEADD(DAY, MOD(x, 60), TIMESTAMP '2029-12-01 00:00:00'), "
+                + "CASE WHEN MOD(x, 20) = 0 THEN TIMESTAMP '2029-12-01 00:00:00' END FROM SYSTEM_RANGE(1, 5000) r(x)");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @BeforeEach
+    void resetViolations() {
+        violations.clear();
+    }
+
+    @Test
+    void bookingQueriesUseIndexes() {
+        // First keyset page only: H2 cannot plan the OR seek predicate of later pages over an
+        // index, while MySQL turns it into a range on the same index the first page walks.
+        // Built as KeysetPagination builds it, with the order set by the specification
+        explain("BookingRepository.findBy(startDate)", () -> bookingRepository.findBy(
+                firstPage("startDate", "user", "car"), query -> query.limit(20).all()));
+        explain("BookingRepository.findWithUserAndCarById", () -> bookingRepository.findWithUserAndCarById(1L));
+        explain("BookingRepository.findByUserEmail", () -> bookingRepository.findByUserEmail("a@b.c"));
+        explain("BookingRepository.findByCarId", () -> bookingRepository.findByCarId(1L));
+        explain("BookingRepository.findByStatus", () -> bookingRepository.findByStatus(BookingStatus.PENDING));
+        explain("BookingRepository.existsByIdAndUserEmail", () -> bookingRepository.existsByIdAndUserEmail(1L, "a@b.c"));
+        explain("BookingRepository.existsOverlappingBooking", () -> bookingRepository.existsOverlappingBooking(1L, DAY, DAY));
+        explain("BookingRepository.findActiveDateRanges", () -> bookingRepository.findActiveDateRanges(DAY));
+        explain("BookingRepository.findVersionById", () -> bookingRepository.findVersionById(1L));
+        explain("BookingRepository.findCollectionVersionByUserEmail",
+                () -> bookingRepository.findCollectionVersionByUserEmail("a@b.c"));
+        explain("BookingRepository.streamForExport", () -> consume(bookingRepository.streamForExport(DAY, DAY, null)));
+
+        assertNoUnexpectedScans();
+    }
+
+    @Test
+    void carQueriesUseIndexes() {
+        explain("CarRepository.findBy(pricePerDay)", () -> carRepository.findBy(
+                firstPage("pricePerDay"), query -> query.limit(20).all()));
+        explain("CarRepository.findByIdForUpdate", () -> carRepository.findByIdForUpdate(1L));
+        explain("CarRepository.findVersionById", () -> carRepository.findVersionById(1L));
+        // The catalog is filtered by substring and flag, which no index serves; bookings must not be scanned
+        explain("CarRepository.findAvailableBetween", () -> carRepository.findAvailableBetween(
+                DAY, DAY, "a", null, null, null, PageRequest.of(0, 20)), "cars");
+        explain("CarRepository.findByAvailableTrue", () -> carRepository.findByAvailableTrue(), "cars");
+
+        assertNoUnexpectedScans();
+    }
+
+    @Test
+    void paymentQueriesUseIndexes() {
+        explain("PaymentRepository.findBy(paymentDate)", () -> paymentRepository.findBy(
+                firstPage("paymentDate"), query -> query.limit(20).all()));
+        explain("PaymentRepository.findByBooking", () -> paymentRepository.findByBooking(bookingRepository.getReferenceById(1L)));
+        explain("PaymentRepository.findByPaymentStatus", () -> paymentRepository.findByPaymentStatus(PaymentStatus.PENDING));
+        explain("PaymentRepository.existsByIdAndBookingUserEmail",
+                () -> paymentRepository.existsByIdAndBookingUserEmail(1L, "a@b.c"));
+        explain("PaymentRepository.findVersionById", () -> paymentRepository.findVersionById(1L));
+        explain("PaymentRepository.streamForExport", () -> consume(paymentRepository.streamForExport(NOW, NOW, null)));
+
+        assertNoUnexpectedScans();
+    }
+
+    @Test
+    void userQueriesUseIndexes() {
+        explain("UserRepository.findBy(name)", () -> userRepository.findBy(
+                firstPage("name"), query -> query.limit(20).all()));
+        explain("UserRepository.findByEmail", () -> userRepository.findByEmail("a@b.c"));
+        explain("UserRepository.existsByEmail", () -> userRepository.existsByEmail("a@b.c"));
+        explain("UserRepository.findByResetToken", () -> userRepository.findByResetToken("token"));
+        explain("UserRepository.findActiveSecurityVersionById", () -> userRepository.findActiveSecurityVersionById(1L));
+
+        assertNoUnexpectedScans();
+    }
+
+    @Test
+    void refreshTokenQueriesUseIndexes() {
+        explain("RefreshTokenRepository.existsByTokenHash", () -> refreshTokenRepository.existsByTokenHash("hash"));
+        explain("RefreshTokenRepository.findUserByTokenHash", () -> refreshTokenRepository.findUserByTokenHash("hash"));
+        explain("RefreshTokenRepository.revokeIfActive", () -> refreshTokenRepository.revokeIfActive("hash", NOW));
+        explain("RefreshTokenRepository.revokeAllByUserId", () -> refreshTokenRepository.revokeAllByUserId(1L, NOW));
+        explain("RefreshTokenRepository.findExpiredIds", () -> refreshTokenRepository.findExpiredIds(NOW, Limit.of(500)));
+
+        assertNoUnexpectedScans();
+    }
+
+    @Test
+    void collectionCounterQueriesUseIndexes() {
+        explain("CollectionCounterRepository.findById", () -> collectionCounterRepository.findById("cars"));
+        explain("CollectionCounterRepository.increment", () -> collectionCounterRepository.increment("cars"));
+
+        assertNoUnexpectedScans();
+    }
+
+    private void explain(String query, Runnable call, String... scannable) {
+        SqlRecorder.STATEMENTS.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            call.run();
+            status.setRollbackOnly();
+        });
+        List<String> statements = new ArrayList<>(SqlRecorder.STATEMENTS);
+        assertThat(statements).as("SQL issued by %s", query).isNotEmpty();
+
+        Set<String> allowed = Set.of(scannable);
+        for (String sql : statements) {
+            String plan = plan(sql);
+            Matcher matcher = TABLE_SCAN.matcher(plan);
+            while (matcher.find()) {
+                if (!allowed.contains(matcher.group(1))) {
+                    violations.computeIfAbsent(query, q -> new ArrayList<>()).add(plan);
+                    break;
+                }
+            }
+        }
+    }
+
+    private String plan(String sql) {
+        Object[] nulls = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        return jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, nulls).get(0);
+    }
+
+    // The first page of a keyset listing sorted by property, then id, outer-joining associations
+    private static <T> Specification<T> firstPage(String property, String... associations) {
+        return (root, query, cb) -> {
+            for (String association : associations) {
+                root.fetch(association, JoinType.LEFT);
+            }
+            query.orderBy(QueryUtils.toOrders(Sort.by(property, "id"), root, cb));
+            return null;
+        };
+    }
+
+    private void assertNoUnexpectedScans() {
+        assertThat(violations)
+                .as(() -> violations.entrySet().stream()
+                        .map(e -> e.getKey() + " scans:\n" + String.join("\n", e.getValue()))
+                        .collect(Collectors.joining("\n\n")))
+                .isEmpty();
+    }
+
+    private static void consume(Stream<?> stream) {
+        try (stream) {
+            stream.forEach(row -> { });
+        }
+    }
+
+    /** Collects the SQL Hibernate prepares; registered by class name, so its state is static. */
+    public static class SqlRecorder implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.carrental.security.jwt;
+
+import com.carrental.model.Role;
+import com.carrental.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JWT verification cost: the original approach (new key and parser, token
+ * verified twice) against a shared parser and the verified-token cache.
+ * Run with {@code main} after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "KZkYh6Hm5Uq9wXb2JvN4cR7tGyV8pDx1fE3aB6sC9dF2gH5jK8nL7mP4qR1tV";
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtils, "refreshExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedTokenCacheMaxEntries", 10_000);
+        jwtUtils.init();
+
+        User user = User.builder().id(42L).email("bench@example.com").role(Role.CUSTOMER).build();
+        token = jwtUtils.generateTokenForUser(user);
+    }
+
+    @Benchmark
+    public Claims perRequestKeyAndParser() {
+        // What the filter used to do: validate, then parse again for the subject
+        Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET))).build()
+                .parseClaimsJws(token);
+        return Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET))).build()
+                .parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Claims sharedParser() {
+        return jwtUtils.getClaimsFromJwtToken(token);
+    }
+
+    @Benchmark
+    public Claims cachedVerification() {
+        return jwtUtils.verifyJwtToken(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtAuthBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,86 @@
+package com.carrental.service;
+
+import com.carrental.dto.response.CarImportResponse;
+import com.carrental.model.Car;
+import com.carrental.repository.CarRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports small files in batches of three, so one over-long column fails a whole batch and
+ * forces it to be replayed row by row. Runs against its own in-memory database.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:car_import;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR",
+        "app.cars.import.batch-size=3"})
+@ActiveProfiles("test")
+class CarImportServiceTests {
+
+    @Autowired
+    private CarImportService carImportService;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Test
+    void ndjsonImportsValidRowsAndReportsEveryOtherRowByLine() throws IOException {
+        String plateTooLong = "P".repeat(300);
+        String body = """
+                {"make":"Ndjson","model":"A","year":2020,"pricePerDay":10}
+                {not json}
+                null
+                {"make":"","model":"B","year":2020,"pricePerDay":-1}
+                {"make":"Ndjson","model":"C","year":2021,"pricePerDay":20}
+
+                {"make":"Ndjson","model":"D","year":2022,"pricePerDay":30,"licensePlate":"%s"}
+                {"make":"Ndjson","model":"E","year":2023,"pricePerDay":40}
+                """.formatted(plateTooLong);
+
+        CarImportResponse response = carImportService.importNdjson(stream(body));
+
+        assertThat(response.getImported()).isEqualTo(3);
+        assertThat(response.getFailed()).isEqualTo(4);
+        assertThat(response.getErrors()).extracting(CarImportResponse.RowError::line).containsExactly(2L, 3L, 4L, 7L);
+        assertThat(response.getErrors().get(1).message()).isEqualTo("Expected a JSON object");
+        assertThat(response.getErrors().get(2).message()).contains("make: Make is required", "pricePerDay: Price per day must be positive");
+        assertThat(carRepository.findByMakeContainingIgnoreCase("Ndjson"))
+                .extracting(Car::getModel)
+                .containsExactlyInAnyOrder("A", "C", "E");
+    }
+
+    @Test
+    void csvStopsAtAnUnterminatedQuoteAndStillReportsWhatCameBefore() throws IOException {
+        String body = """
+                Make,Model,year,price_per_day,Color
+                Csv,"Multi
+                line",2021,25.5,Blue
+                Csv,Bad year,abc,20,
+                Csv,Plain,2022,30,
+                Csv,"Open,2023,40,
+                Csv,Never read,2024,50,
+                """;
+
+        CarImportResponse response = carImportService.importCsv(stream(body));
+
+        assertThat(response.getImported()).isEqualTo(2);
+        assertThat(response.getErrors()).extracting(CarImportResponse.RowError::line).containsExactly(4L, 6L);
+        assertThat(response.getErrors().get(0).message()).startsWith("Invalid value");
+        assertThat(response.getErrors().get(1).message()).startsWith("Unterminated quoted field");
+        assertThat(carRepository.findByMakeContainingIgnoreCase("Csv"))
+                .extracting(Car::getModel)
+                .containsExactlyInAnyOrder("Multi\nline", "Plain");
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,89 @@
+package com.carrental.service;
+
+import com.carrental.dto.response.CarResponse;
+import com.carrental.dto.response.CarSearchResponse;
+import com.carrental.model.Car;
+import com.carrental.repository.CarRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Search and facet-count latency of {@link CarSearchIndex} as the fleet grows.
+ * Run with {@code main} after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CarSearchIndexBenchmark {
+
+    private static final String[] MAKES = {"Toyota", "Honda", "Ford", "Hyundai", "Mahindra", "Tata", "Suzuki", "Kia"};
+    private static final String[] MODELS = {"Camry", "Civic", "Focus", "Creta", "Thar", "Nexon", "Swift", "Seltos"};
+    private static final String[] COLORS = {"Red", "Blue", "White", "Black", "Silver", "Grey"};
+    private static final String[] TRANSMISSIONS = {"Automatic", "Manual"};
+    private static final String[] FUEL_TYPES = {"Petrol", "Diesel", "Electric", "Hybrid"};
+
+    @Param({"1000", "10000", "50000"})
+    private int fleetSize;
+
+    private CarSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        List<Car> cars = new ArrayList<>(fleetSize);
+        for (long id = 1; id <= fleetSize; id++) {
+            cars.add(Car.builder()
+                    .id(id)
+                    .make(MAKES[random.nextInt(MAKES.length)])
+                    .model(MODELS[random.nextInt(MODELS.length)] + " " + (100 + random.nextInt(900)))
+                    .color(COLORS[random.nextInt(COLORS.length)])
+                    .transmission(TRANSMISSIONS[random.nextInt(TRANSMISSIONS.length)])
+                    .fuelType(FUEL_TYPES[random.nextInt(FUEL_TYPES.length)])
+                    .pricePerDay(BigDecimal.valueOf(20 + random.nextInt(200)))
+                    .available(random.nextInt(4) != 0)
+                    .build());
+        }
+        CarRepository carRepository = mock(CarRepository.class);
+        when(carRepository.findAll()).thenReturn(cars);
+        index = new CarSearchIndex(carRepository);
+        index.reload();
+    }
+
+    @Benchmark
+    public List<CarResponse> selectiveSubstring() {
+        return index.search("swift 42", null, null, null, null, true);
+    }
+
+    @Benchmark
+    public List<CarResponse> broadTermWithPriceFilter() {
+        return index.search("hyundai electric", null, null, BigDecimal.valueOf(50), BigDecimal.valueOf(120), null);
+    }
+
+    @Benchmark
+    public List<CarResponse> shortPrefix() {
+        return index.search(null, "to", null, null, null, true);
+    }
+
+    @Benchmark
+    public CarSearchResponse broadTermWithFacets() {
+        return index.searchWithFacets("hyundai electric", null, null, BigDecimal.valueOf(50), BigDecimal.valueOf(120), null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CarSearchIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,126 @@
+package com.carrental.service;
+
+import com.carrental.model.Booking;
+import com.carrental.model.Payment;
+import com.carrental.model.PaymentStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Rows per second for a million-row payment CSV export, plain and gzipped. Rows are generated
+ * lazily, so the number excludes database time. The fork gets a 64 MB heap, far less than a
+ * million materialized rows would need, and prints the peak old-generation usage after each
+ * iteration. Run with {@code main} after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx64m")
+@State(Scope.Benchmark)
+public class CsvExportBenchmark {
+
+    private static final int ROWS = 1_000_000;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private StreamingResponseBody body;
+
+    @Setup
+    public void setUp() {
+        PlatformTransactionManager noTransaction = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+        StreamingExporter exporter = new StreamingExporter(
+                mock(EntityManager.class, withSettings().stubOnly()), noTransaction, new ObjectMapper());
+        body = exporter.csv(CsvExportBenchmark::payments, PaymentService.CSV_COLUMNS, gzip);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeaks() {
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getName().matches(".*(Old|Tenured).*")) {
+                System.out.printf("%n%s peak: %d KB%n", pool.getName(), pool.getPeakUsage().getUsed() / 1024);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long exportMillionPayments() throws IOException {
+        CountingSink sink = new CountingSink();
+        body.writeTo(sink);
+        return sink.bytes;
+    }
+
+    private static Stream<Payment> payments() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        return Stream.iterate(1L, id -> id + 1).limit(ROWS).map(id -> Payment.builder()
+                .id(id)
+                .booking(Booking.builder().id(id).build())
+                .amount(BigDecimal.valueOf(1000 + id % 50_000, 2))
+                .paymentStatus(id % 10 == 0 ? PaymentStatus.REFUNDED : PaymentStatus.COMPLETED)
+                .paymentMethod(id % 3 == 0 ? "CARD" : "UPI")
+                .transactionId("txn-" + Long.toHexString(id * 0x9E3779B97F4A7C15L))
+                .paymentDate(start.plusMinutes(id))
+                .build());
+    }
+
+    private static final class CountingSink extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CsvExportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
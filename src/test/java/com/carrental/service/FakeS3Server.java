@@ -0,0 +1,255 @@
+package com.carrental.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-process stand-in for an S3-compatible object store, serving one bucket with path-style
+ * addressing. It covers the calls {@link S3StorageBackend} makes: plain and conditional puts,
+ * multipart uploads, ranged gets, heads and deletes. Signatures are not checked. It counts the
+ * requests and the connections they arrived on, so tests can see that connections are reused.
+ */
+class FakeS3Server implements AutoCloseable {
+
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+    final Map<String, byte[]> objects = new ConcurrentSkipListMap<>();
+    final AtomicInteger requests = new AtomicInteger();
+    final AtomicInteger completedMultipartUploads = new AtomicInteger();
+    final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final String bucket;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    FakeS3Server(String bucket) throws IOException {
+        this.bucket = bucket;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        connections.add(exchange.getRemoteAddress());
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (!path.startsWith("/" + bucket)) {
+                error(exchange, 404, "NoSuchBucket");
+                return;
+            }
+            String key = path.length() > bucket.length() + 2 ? path.substring(bucket.length() + 2) : "";
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            // Read even when empty: the server drops connections whose request body was left unread
+            byte[] body = body(exchange);
+            switch (exchange.getRequestMethod()) {
+                case "HEAD" -> head(exchange, key);
+                case "GET" -> get(exchange, key);
+                case "PUT" -> put(exchange, key, query, body);
+                case "POST" -> post(exchange, key, query, body);
+                case "DELETE" -> delete(exchange, key, query);
+                default -> error(exchange, 405, "MethodNotAllowed");
+            }
+        }
+    }
+
+    private void head(HttpExchange exchange, String key) throws IOException {
+        byte[] content = key.isEmpty() ? new byte[0] : objects.get(key);
+        if (content == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Length", Integer.toString(content.length));
+        exchange.getResponseHeaders().set("ETag", eTag(content));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void get(HttpExchange exchange, String key) throws IOException {
+        byte[] content = objects.get(key);
+        if (content == null) {
+            error(exchange, 404, "NoSuchKey");
+            return;
+        }
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        int start = 0;
+        int end = content.length - 1;
+        if (range != null) {
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            start = Integer.parseInt(bounds[0]);
+            end = Math.min(end, Integer.parseInt(bounds[1]));
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        } else {
+            exchange.getResponseHeaders().set("ETag", eTag(content));
+        }
+        exchange.sendResponseHeaders(range != null ? 206 : 200, end - start + 1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(content, start, end - start + 1);
+        }
+    }
+
+    private void put(HttpExchange exchange, String key, Map<String, String> query, byte[] content) throws IOException {
+        if (query.containsKey("uploadId")) {
+            Map<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+            if (parts == null) {
+                error(exchange, 404, "NoSuchUpload");
+                return;
+            }
+            parts.put(Integer.parseInt(query.get("partNumber")), content);
+        } else if ("*".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            if (objects.putIfAbsent(key, content) != null) {
+                error(exchange, 412, "PreconditionFailed");
+                return;
+            }
+        } else {
+            objects.put(key, content);
+        }
+        exchange.getResponseHeaders().set("ETag", eTag(content));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void post(HttpExchange exchange, String key, Map<String, String> query, byte[] body) throws IOException {
+        if (query.containsKey("uploads")) {
+            String uploadId = UUID.randomUUID().toString();
+            uploads.put(uploadId, new ConcurrentSkipListMap<>());
+            xml(exchange, "<InitiateMultipartUploadResult><Bucket>" + bucket + "</Bucket><Key>" + key
+                    + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+            return;
+        }
+        Map<Integer, byte[]> parts = uploads.remove(query.get("uploadId"));
+        if (parts == null) {
+            error(exchange, 404, "NoSuchUpload");
+            return;
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        Matcher partNumbers = PART_NUMBER.matcher(new String(body, StandardCharsets.UTF_8));
+        while (partNumbers.find()) {
+            content.write(parts.get(Integer.parseInt(partNumbers.group(1))));
+        }
+        objects.put(key, content.toByteArray());
+        completedMultipartUploads.incrementAndGet();
+        xml(exchange, "<CompleteMultipartUploadResult><Bucket>" + bucket + "</Bucket><Key>" + key
+                + "</Key><ETag>\"" + HexFormat.of().formatHex(md5(content.toByteArray())) + "-" + parts.size()
+                + "\"</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private void delete(HttpExchange exchange, String key, Map<String, String> query) throws IOException {
+        if (query.containsKey("uploadId")) {
+            uploads.remove(query.get("uploadId"));
+        } else {
+            objects.remove(key);
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    // Signed streaming uploads arrive as aws-chunked: "<hex size>;chunk-signature=...\r\n<data>\r\n", ending with size 0
+    private static byte[] body(HttpExchange exchange) throws IOException {
+        byte[] raw;
+        try (InputStream in = exchange.getRequestBody()) {
+            raw = in.readAllBytes();
+        }
+        String sha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (sha256 == null || !sha256.startsWith("STREAMING-")) {
+            return raw;
+        }
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        int position = 0;
+        while (true) {
+            int lineEnd = indexOfCrlf(raw, position);
+            String header = new String(raw, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.split(";")[0].trim(), 16);
+            if (size == 0) {
+                return decoded.toByteArray();
+            }
+            decoded.write(raw, lineEnd + 2, size);
+            position = lineEnd + 2 + size + 2;
+        }
+    }
+
+    private static int indexOfCrlf(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length - 1; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Malformed aws-chunked body");
+    }
+
+    private static void xml(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String code) throws IOException {
+        byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + code + "</Code><Message>" + code
+                + "</Message></Error>").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                int equals = parameter.indexOf('=');
+                query.put(equals < 0 ? parameter : parameter.substring(0, equals),
+                        equals < 0 ? "" : parameter.substring(equals + 1));
+            }
+        }
+        return query;
+    }
+
+    // The SDK checks a single-part object's ETag against the MD5 of what it sent
+    private static String eTag(byte[] content) {
+        return "\"" + HexFormat.of().formatHex(md5(content)) + "\"";
+    }
+
+    private static byte[] md5(byte[] content) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(content);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.carrental.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+
+import static com.carrental.service.StorageFixtures.randomBytes;
+import static com.carrental.service.StorageFixtures.store;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Downloads an uploaded image over HTTP with the conditional and range headers browsers and
+ * media players send. The file is larger than the hot cache's per-file limit, so the body comes
+ * from the disk.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class FileResponseWriterTests {
+
+    private static final int SIZE = 600_000;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private byte[] content;
+    private String name;
+
+    @BeforeEach
+    void upload() {
+        content = randomBytes(SIZE);
+        // The client's content type is ignored in favour of the one the extension maps to
+        name = store(fileStorageService, "photo.JPG", "text/html", content);
+    }
+
+    @Test
+    void wholeFileIsSentWithValidatorsAndLongLivedCaching() {
+        ResponseEntity<byte[]> response = get();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(content);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.IMAGE_JPEG);
+        assertThat(response.getHeaders().getETag()).isNotNull();
+        assertThat(response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeaders().getCacheControl()).contains("immutable");
+    }
+
+    @Test
+    void singleRangesAreSentAsPartialContent() {
+        ResponseEntity<byte[]> range = get(HttpHeaders.RANGE, "bytes=100-199");
+        assertThat(range.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(range.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 100-199/" + SIZE);
+        assertThat(range.getBody()).isEqualTo(Arrays.copyOfRange(content, 100, 200));
+
+        ResponseEntity<byte[]> suffix = get(HttpHeaders.RANGE, "bytes=-10");
+        assertThat(suffix.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(suffix.getBody()).isEqualTo(Arrays.copyOfRange(content, SIZE - 10, SIZE));
+    }
+
+    @Test
+    void multipleRangesAreAnsweredWithTheWholeFile() {
+        ResponseEntity<byte[]> response = get(HttpHeaders.RANGE, "bytes=0-1,5-6");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(content);
+    }
+
+    @Test
+    void rangesStartingPastTheEndAreNotSatisfiable() {
+        ResponseEntity<byte[]> response = get(HttpHeaders.RANGE, "bytes=" + SIZE + "-");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */" + SIZE);
+    }
+
+    @Test
+    void ifRangeSendsTheRangeOnlyWhileTheTagStillMatches() {
+        String etag = get().getHeaders().getETag();
+
+        ResponseEntity<byte[]> stale = get(HttpHeaders.RANGE, "bytes=0-9", HttpHeaders.IF_RANGE, "\"other\"");
+        assertThat(stale.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(stale.getBody()).isEqualTo(content);
+
+        ResponseEntity<byte[]> current = get(HttpHeaders.RANGE, "bytes=0-9", HttpHeaders.IF_RANGE, etag);
+        assertThat(current.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(current.getBody()).isEqualTo(Arrays.copyOfRange(content, 0, 10));
+    }
+
+    @Test
+    void matchingTagIsAnsweredWithNotModified() {
+        String etag = get().getHeaders().getETag();
+
+        ResponseEntity<byte[]> response = get(HttpHeaders.IF_NONE_MATCH, etag);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+        assertThat(response.getHeaders().getETag()).isEqualTo(etag);
+    }
+
+    // Header names and values, alternating
+    private ResponseEntity<byte[]> get(String... headers) {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        for (int i = 0; i < headers.length; i += 2) {
+            requestHeaders.set(headers[i], headers[i + 1]);
+        }
+        return restTemplate.exchange("/files/" + name, HttpMethod.GET, new HttpEntity<>(requestHeaders), byte[].class);
+    }
+}
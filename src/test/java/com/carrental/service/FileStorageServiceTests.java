@@ -0,0 +1,119 @@
+package com.carrental.service;
+
+import com.carrental.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.carrental.service.StorageFixtures.randomBytes;
+import static com.carrental.service.StorageFixtures.store;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Content-addressed storage on the local backend. Every test stores content of its own, so
+ * blobs left behind by earlier runs in the shared upload directory are never matched.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class FileStorageServiceTests {
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Value("${file.upload-dir}")
+    private String uploadDir;
+
+    @Test
+    void identicalUploadsShareOneBlobUntilTheLastNameIsDeleted() throws IOException {
+        byte[] content = randomBytes(10_000);
+        String first = store(fileStorageService, "a.pdf", null, content);
+        String second = store(fileStorageService, "b.pdf", null, content);
+        StoredFile stored = fileStorageService.loadFile(first);
+
+        assertThat(first).isNotEqualTo(second);
+        assertThat(fileStorageService.loadFile(second).key()).isEqualTo(stored.key());
+        assertThat(referenceCount(stored)).isEqualTo("2");
+        assertThat(read(stored)).isEqualTo(content);
+
+        fileStorageService.deleteFile(first);
+        assertThat(fileStorageService.fileExists(first)).isFalse();
+        assertThat(storageBackend.exists(stored.key())).isTrue();
+        assertThat(referenceCount(stored)).isEqualTo("1");
+        assertThat(read(fileStorageService.loadFile(second))).isEqualTo(content);
+
+        fileStorageService.deleteFile(second);
+        assertThat(fileStorageService.fileExists(second)).isFalse();
+        assertThat(storageBackend.exists(stored.key())).isFalse();
+        assertThat(storageBackend.exists(stored.key() + ".refs")).isFalse();
+        assertThat(storageBackend.exists("locks/" + stored.sha256())).isFalse();
+    }
+
+    @Test
+    void variantsAreDeletedWithTheLastReferenceToTheirSource() {
+        byte[] content = randomBytes(1_000);
+        String first = store(fileStorageService, "a.jpg", null, content);
+        String second = store(fileStorageService, "b.jpg", null, content);
+        StoredFile source = fileStorageService.loadFile(first);
+        StoredFile variant = fileStorageService.storeVariant(source, ImageVariant.THUMB, "jpg", randomBytes(100));
+
+        fileStorageService.deleteFile(first);
+        assertThat(fileStorageService.findVariant(source, ImageVariant.THUMB)).contains(variant);
+
+        fileStorageService.deleteFile(second);
+        assertThat(fileStorageService.findVariant(source, ImageVariant.THUMB)).isEmpty();
+    }
+
+    @Test
+    void filesLeftInTheUploadDirectoryAreMovedIntoTheBlobStore() throws IOException {
+        byte[] content = randomBytes(1_000);
+        Path directory = Paths.get(uploadDir);
+        String suffix = Long.toString(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), 36);
+        Files.write(directory.resolve("legacy-1-" + suffix + ".png"), content);
+        Files.write(directory.resolve("legacy-2-" + suffix + ".png"), content);
+
+        fileStorageService.adoptLooseFiles();
+
+        StoredFile first = fileStorageService.loadFile("legacy-1-" + suffix + ".png");
+        StoredFile second = fileStorageService.loadFile("legacy-2-" + suffix + ".png");
+        assertThat(first.key()).isEqualTo(second.key());
+        assertThat(first.immutable()).isFalse();
+        assertThat(first.contentType()).isEqualTo("image/png");
+        assertThat(read(second)).isEqualTo(content);
+        assertThat(directory.resolve("legacy-1-" + suffix + ".png")).doesNotExist();
+        assertThat(directory.resolve("legacy-2-" + suffix + ".png")).doesNotExist();
+    }
+
+    @Test
+    void namesReachingOutsideTheReferencesAreNotFound() {
+        assertThat(fileStorageService.fileExists("../pom.xml")).isFalse();
+        assertThat(fileStorageService.fileExists(".meta")).isFalse();
+        assertThatThrownBy(() -> fileStorageService.loadFile("../pom.xml"))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private String referenceCount(StoredFile file) throws IOException {
+        return storageBackend.read(file.key() + ".refs")
+                .map(bytes -> new String(bytes, StandardCharsets.US_ASCII))
+                .orElse("0");
+    }
+
+    private byte[] read(StoredFile file) throws IOException {
+        try (InputStream in = fileStorageService.openFile(file, 0, file.size())) {
+            return in.readAllBytes();
+        }
+    }
+}
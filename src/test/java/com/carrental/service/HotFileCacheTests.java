@@ -0,0 +1,95 @@
+package com.carrental.service;
+
+import com.carrental.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import static com.carrental.service.StorageFixtures.randomBytes;
+import static com.carrental.service.StorageFixtures.store;
+import static org.assertj.core.api.Assertions.assertThat;
+import static com.carrental.service.StorageFixtures.randomBytes;
+import static com.carrental.service.StorageFixtures.store;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Small files served from memory. Cached content is checked against storage on every request
+ * here, so a blob deleted behind the service's back is noticed straight away.
+ */
+@SpringBootTest(properties = "app.files.hot-cache.revalidate-after=0s")
+@ActiveProfiles("test")
+class HotFileCacheTests {
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void contentIsReadInOnItsSecondRequestAndServedFromMemoryAfter() throws IOException {
+        byte[] content = randomBytes(10_000);
+        StoredFile file = fileStorageService.loadFile(store(fileStorageService, "hot.png", null, content));
+
+        assertThat(fileStorageService.cachedContent(file)).isEmpty();
+        assertThat(bytes(fileStorageService.cachedContent(file))).isEqualTo(content);
+
+        double hits = hits();
+        assertThat(bytes(fileStorageService.cachedContent(file))).isEqualTo(content);
+        assertThat(hits()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    void deletingTheLastReferenceDropsTheContent() throws IOException {
+        byte[] content = randomBytes(10_000);
+        String name = store(fileStorageService, "hot.png", null, content);
+        StoredFile file = fileStorageService.loadFile(name);
+        fileStorageService.cachedContent(file);
+        assertThat(fileStorageService.cachedContent(file)).isPresent();
+
+        double cachedBytes = cachedBytes();
+        fileStorageService.deleteFile(name);
+
+        assertThat(cachedBytes()).isEqualTo(cachedBytes - content.length);
+        assertThat(fileStorageService.cachedContent(file)).isEmpty();
+    }
+
+    @Test
+    void contentDeletedThroughAnotherNodeIsNoLongerServed() throws IOException {
+        byte[] content = randomBytes(10_000);
+        StoredFile file = fileStorageService.loadFile(store(fileStorageService, "hot.png", null, content));
+        fileStorageService.cachedContent(file);
+        assertThat(fileStorageService.cachedContent(file)).isPresent();
+
+        double cachedBytes = cachedBytes();
+        storageBackend.delete(file.key());
+
+        assertThatThrownBy(() -> fileStorageService.cachedContent(file))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(cachedBytes()).isEqualTo(cachedBytes - content.length);
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", "hotFiles").tag("result", "hit").functionCounter().count();
+    }
+
+    private double cachedBytes() {
+        return meterRegistry.get("files.hot-cache.bytes").gauge().value();
+    }
+
+    private static byte[] bytes(Optional<ByteBuffer> content) {
+        assertThat(content).isPresent();
+        byte[] bytes = new byte[content.get().remaining()];
+        content.get().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,147 @@
+package com.carrental.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+import static com.carrental.service.StorageFixtures.store;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Generates variants of images uploaded to the local backend. Requests never wait for a variant
+ * here, so every request made before one is ready gets the fallback.
+ */
+@SpringBootTest(properties = "app.images.variants.max-wait-ms=0")
+@ActiveProfiles("test")
+class ImageVariantServiceTests {
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void uploadedImagesGetEveryVariantWithinItsBounds() throws IOException {
+        String name = store(fileStorageService, "car.jpg", "image/jpeg", jpeg(2000, 1500));
+        imageVariantService.generateVariants(name);
+
+        for (ImageVariant variant : ImageVariant.values()) {
+            StoredFile stored = awaitVariant(name, variant);
+            BufferedImage image = read(stored);
+
+            assertThat(stored.contentType()).isEqualTo("image/jpeg");
+            assertThat(stored.immutable()).isTrue();
+            assertThat(Math.max(image.getWidth(), image.getHeight())).isEqualTo(variant.maxDimension());
+            assertThat(image.getWidth() * 3).isEqualTo(image.getHeight() * 4);
+        }
+    }
+
+    @Test
+    void requestsBeforeTheVariantIsReadyGetTheOriginalWithoutLongLivedCaching() throws IOException {
+        String name = store(fileStorageService, "late.jpg", "image/jpeg", jpeg(1800, 1200));
+
+        StoredFile fallback = imageVariantService.resolve(name, ImageVariant.CARD);
+        assertThat(fallback.name()).isEqualTo(name);
+        assertThat(fallback.immutable()).isFalse();
+
+        StoredFile variant = awaitVariant(name, ImageVariant.CARD);
+        assertThat(variant.immutable()).isTrue();
+    }
+
+    @Test
+    void undecodableImagesAreServedAsTheyAre() {
+        String name = store(fileStorageService, "broken.jpg", "image/jpeg", new byte[]{1, 2, 3});
+
+        long generations = generations();
+        imageVariantService.resolve(name, ImageVariant.THUMB);
+        await(() -> generations() > generations);
+
+        StoredFile served = imageVariantService.resolve(name, ImageVariant.THUMB);
+        assertThat(served.name()).isEqualTo(name);
+        assertThat(served.immutable()).isTrue();
+    }
+
+    @Test
+    void storageFailuresAreRetriedByTheNextRequest() throws IOException {
+        String name = store(fileStorageService, "moved.jpg", "image/jpeg", jpeg(800, 600));
+        Path blob = fileStorageService.localPath(fileStorageService.loadFile(name)).orElseThrow();
+        Path away = blob.resolveSibling(blob.getFileName() + ".away");
+        Files.move(blob, away);
+        try {
+            long generations = generations();
+            StoredFile fallback = imageVariantService.resolve(name, ImageVariant.THUMB);
+            await(() -> generations() > generations);
+            assertThat(fallback.name()).isEqualTo(name);
+        } finally {
+            Files.move(away, blob);
+        }
+        assertThat(awaitVariant(name, ImageVariant.THUMB).name()).isNotEqualTo(name);
+    }
+
+    private StoredFile awaitVariant(String name, ImageVariant variant) {
+        StoredFile[] resolved = new StoredFile[1];
+        await(() -> !(resolved[0] = imageVariantService.resolve(name, variant)).name().equals(name));
+        return resolved[0];
+    }
+
+    private long generations() {
+        return meterRegistry.get("images.variants.generate").timer().count();
+    }
+
+    private BufferedImage read(StoredFile file) throws IOException {
+        try (InputStream in = fileStorageService.openFile(file, 0, file.size())) {
+            return ImageIO.read(in);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition still false after 10 s").isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    // A gradient with a random stripe, so no earlier upload already has this content and its variants
+    private static byte[] jpeg(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.RED, width, height, Color.BLUE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(new Color(ThreadLocalRandom.current().nextInt(0x1000000)));
+        graphics.fillRect(0, 0, width, 16);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "jpg", out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,116 @@
+package com.carrental.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import static com.carrental.service.StorageFixtures.randomBytes;
+import static com.carrental.service.StorageFixtures.store;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs file storage against {@link FakeS3Server} instead of the local disk. A low multipart
+ * threshold makes the larger uploads go up in parts.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.storage.backend=s3",
+        "app.storage.s3.bucket=" + S3StorageBackendTests.BUCKET,
+        "app.storage.s3.access-key=test",
+        "app.storage.s3.secret-key=test",
+        "app.storage.s3.multipart-threshold=64KB",
+        "app.storage.s3.part-size=32KB",
+        "file.upload-dir=./target/test-uploads-s3"})
+@ActiveProfiles("test")
+class S3StorageBackendTests {
+
+    static final String BUCKET = "uploads";
+
+    private static FakeS3Server s3;
+
+    @DynamicPropertySource
+    static void s3(DynamicPropertyRegistry registry) {
+        try {
+            s3 = new FakeS3Server(BUCKET);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        registry.add("app.storage.s3.endpoint", () -> s3.endpoint().toString());
+    }
+
+    @AfterAll
+    static void stop() {
+        s3.close();
+    }
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void identicalUploadsShareOneObjectUntilTheLastNameIsDeleted() {
+        byte[] content = randomBytes(10_000);
+        String first = store(fileStorageService, "a.pdf", "application/pdf", content);
+        String second = store(fileStorageService, "b.pdf", "application/pdf", content);
+        String blobKey = fileStorageService.loadFile(first).key();
+
+        assertThat(fileStorageService.loadFile(second).key()).isEqualTo(blobKey);
+        assertThat(s3.objects.get(blobKey)).isEqualTo(content);
+        assertThat(s3.objects.get(blobKey + ".refs")).asString().isEqualTo("2");
+
+        fileStorageService.deleteFile(first);
+        assertThat(s3.objects).containsKey(blobKey);
+        assertThat(fileStorageService.fileExists(first)).isFalse();
+
+        fileStorageService.deleteFile(second);
+        assertThat(s3.objects).doesNotContainKeys(blobKey, blobKey + ".refs");
+        assertThat(s3.objects.keySet()).noneMatch(key -> key.startsWith("locks/"));
+    }
+
+    @Test
+    void largeUploadsGoUpInPartsAndDownloadsStreamTheRequestedRange() {
+        byte[] content = randomBytes(200_000);
+        int multipartBefore = s3.completedMultipartUploads.get();
+        String name = store(fileStorageService, "big.bin", null, content);
+
+        assertThat(s3.completedMultipartUploads.get()).isEqualTo(multipartBefore + 1);
+        assertThat(s3.objects.get(fileStorageService.loadFile(name).key())).isEqualTo(content);
+
+        ResponseEntity<byte[]> whole = restTemplate.getForEntity("/files/" + name, byte[].class);
+        assertThat(whole.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(whole.getBody()).isEqualTo(content);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=150000-150999");
+        ResponseEntity<byte[]> range = restTemplate.exchange("/files/" + name, HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class);
+        assertThat(range.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(range.getBody()).isEqualTo(Arrays.copyOfRange(content, 150_000, 151_000));
+    }
+
+    @Test
+    void requestsReuseConnections() {
+        int requestsBefore = s3.requests.get();
+        for (int i = 0; i < 20; i++) {
+            store(fileStorageService, "small.txt", "text/plain", randomBytes(100));
+        }
+
+        assertThat(s3.requests.get() - requestsBefore).isGreaterThan(100);
+        assertThat(s3.connections).hasSizeLessThan(10);
+    }
+}
@@ -0,0 +1,25 @@
+package com.carrental.service;
+
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Uploads shared by the storage tests. Content is random, so a test never matches a blob that
+ * another test or an earlier run left behind.
+ */
+final class StorageFixtures {
+
+    private StorageFixtures() {
+    }
+
+    static String store(FileStorageService fileStorageService, String originalName, String contentType, byte[] content) {
+        return fileStorageService.storeFile(new MockMultipartFile("file", originalName, contentType, content));
+    }
+
+    static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+}